@@ -30,6 +30,9 @@ dependencies {
 
     implementation("com.opencsv:opencsv:5.7.1")
     implementation("org.furyio:fury-core:0.3.1")
+
+    // COPY 导入需要 pgjdbc 的 CopyManager，驱动由 runner 在运行时提供
+    compileOnly("org.postgresql:postgresql")
 }
 
 // 下面是提交作业用的打包任务，保持不变
@@ -0,0 +1,49 @@
+package io.sustc.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "sustc.auth")
+@Data
+public class AuthConfig {
+
+    public enum PasswordStorage {
+        PLAIN,
+        PBKDF2
+    }
+
+    /**
+     * How new passwords are written to {@code users.Password}, by {@code register} and by imports.
+     * Stored values of either form are accepted when checking a password.
+     * <p>
+     * {@code PBKDF2} is opt-in: {@code UserService#getById} returns the stored value, which is then
+     * the hash rather than the password that was registered or imported.
+     */
+    private PasswordStorage passwordStorage = PasswordStorage.PLAIN;
+
+    /**
+     * PBKDF2 iterations for new hashes. Every imported user is hashed once, so this bounds the import time
+     * as well; checks after the first are served by the verified-login cache.
+     */
+    private int hashIterations = 10_000;
+
+    /**
+     * How long a verified login is trusted before the database is asked again.
+     * {@link Duration#ZERO} disables the cache.
+     */
+    private Duration cacheTtl = Duration.ofMinutes(5);
+
+    /**
+     * Verified logins kept at most; the least recently used one is evicted first.
+     */
+    private int cacheSize = 10_000;
+
+    /**
+     * How long a session token issued by {@code UserService#issueToken} stays valid.
+     */
+    private Duration sessionTtl = Duration.ofHours(2);
+}
@@ -0,0 +1,17 @@
+package io.sustc.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "sustc.cache")
+@Data
+public class CacheConfig {
+
+    /**
+     * Recipe details kept in memory at most; the least recently used one is evicted first.
+     * {@code 0} disables the cache.
+     */
+    private int recipeSize = 20_000;
+}
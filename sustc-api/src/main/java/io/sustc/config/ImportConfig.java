@@ -0,0 +1,48 @@
+package io.sustc.config;
+
+import io.sustc.dto.ImportMode;
+import io.sustc.dto.ImportOptions;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "sustc.import")
+@Data
+public class ImportConfig {
+
+    /**
+     * How rows are written during import.
+     * {@link ImportMode#BATCH} is kept as a fallback for databases where COPY is not permitted.
+     */
+    private ImportMode mode = ImportMode.COPY;
+
+    /**
+     * Build keys, indexes and triggers after the bulk load instead of before it.
+     */
+    private boolean deferConstraints = true;
+
+    /**
+     * Connections used side by side during import, keep it below the HikariCP pool size.
+     * {@code 1} imports everything in one transaction.
+     */
+    private int parallelism = 1;
+
+    /**
+     * Rows committed per chunk. A chunked import records its progress and resumes after
+     * the last committed chunk when it is run again. {@code 0} disables chunking.
+     */
+    private int chunkSize = 0;
+
+    /**
+     * Fills the fields left {@code null} in {@code options} with the configured defaults.
+     */
+    public ImportOptions resolve(ImportOptions options) {
+        ImportOptions resolved = options == null ? new ImportOptions() : options.toBuilder().build();
+        if (resolved.getMode() == null) resolved.setMode(mode);
+        if (resolved.getDeferConstraints() == null) resolved.setDeferConstraints(deferConstraints);
+        if (resolved.getParallelism() == null) resolved.setParallelism(parallelism);
+        if (resolved.getChunkSize() == null) resolved.setChunkSize(chunkSize);
+        return resolved;
+    }
+}
@@ -0,0 +1,29 @@
+package io.sustc.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "sustc.search")
+@Data
+public class SearchConfig {
+
+    public enum Backend {
+        /**
+         * Filter and sort in PostgreSQL on every search.
+         */
+        SQL,
+
+        /**
+         * Filter and sort with an in-memory index of the recipes, built after each import
+         * and kept current by the recipe and review writes.
+         */
+        MEMORY
+    }
+
+    /**
+     * Which backend answers {@code RecipeService#searchRecipes}.
+     */
+    private Backend backend = Backend.SQL;
+}
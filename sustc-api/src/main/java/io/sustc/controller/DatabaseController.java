@@ -1,5 +1,9 @@
 package io.sustc.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.sustc.dto.ImportMode;
+import io.sustc.dto.ImportOptions;
+import io.sustc.dto.ImportReport;
 import io.sustc.dto.RecipeRecord;
 import io.sustc.dto.ReviewRecord;
 import io.sustc.dto.UserRecord;
@@ -8,6 +12,8 @@ import lombok.Data;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -18,6 +24,9 @@ public class DatabaseController {
     @Autowired
     private DatabaseService databaseService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @GetMapping("/group-members")
     public List<Integer> getGroupMembers() {
         return databaseService.getGroupMembers();
@@ -25,7 +34,28 @@ public class DatabaseController {
 
     @PostMapping("/import")
     public void importData(@RequestBody ImportDataRequest request) {
-        databaseService.importData(request.getReviewRecords(), request.getUserRecords(), request.getRecipeRecords());
+        databaseService.importData(request.getReviewRecords(), request.getUserRecords(), request.getRecipeRecords(), request.getOptions());
+    }
+
+    /**
+     * Streaming variant of {@code /import}: one record per line, see {@link NdjsonImportReader} for the format.
+     * Records are written while the body is still being received.
+     */
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    public void importStream(InputStream body, @RequestParam(required = false) ImportMode mode) throws IOException {
+        NdjsonImportReader reader = new NdjsonImportReader(objectMapper, body);
+        ImportOptions options = ImportOptions.builder().mode(mode).build();
+        databaseService.importStream(reader.reviews(), reader.users(), reader.recipes(), options);
+    }
+
+    @GetMapping("/import/report")
+    public ImportReport getLastImportReport() {
+        return databaseService.getLastImportReport();
+    }
+
+    @PostMapping("/import/delta")
+    public void importDelta(@RequestBody ImportDataRequest request) {
+        databaseService.importDelta(request.getReviewRecords(), request.getUserRecords(), request.getRecipeRecords());
     }
 
     @DeleteMapping("/drop")
@@ -44,5 +74,6 @@ public class DatabaseController {
         private List<ReviewRecord> reviewRecords;
         private List<UserRecord> userRecords;
         private List<RecipeRecord> recipeRecords;
+        private ImportOptions options;
     }
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package io.sustc.controller;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.sustc.dto.RecipeRecord;
+import io.sustc.dto.ReviewRecord;
+import io.sustc.dto.UserRecord;
+import lombok.Data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Splits a newline-delimited JSON import body into the three record streams.
+ * <p>
+ * Every line holds exactly one of {@code user}, {@code recipe} or {@code review}, e.g.
+ * <pre>{@code {"user": {"authorId": 1, "authorName": "...", ...}}}</pre>
+ * and the lines must be grouped in that order: all users, then all recipes, then all reviews.
+ * Lines are parsed one at a time as the streams are consumed.
+ */
+class NdjsonImportReader {
+
+    private static final String[] SECTIONS = {"user", "recipe", "review"};
+
+    @Data
+    static class ImportLine {
+        private UserRecord user;
+        private RecipeRecord recipe;
+        private ReviewRecord review;
+
+        int section() {
+            if (user != null) return 0;
+            if (recipe != null) return 1;
+            if (review != null) return 2;
+            throw new IllegalArgumentException("Import line has none of user, recipe or review");
+        }
+    }
+
+    private final MappingIterator<ImportLine> lines;
+
+    private ImportLine pending;
+
+    NdjsonImportReader(ObjectMapper objectMapper, InputStream body) throws IOException {
+        this.lines = objectMapper.readerFor(ImportLine.class).readValues(body);
+    }
+
+    Iterator<UserRecord> users() {
+        return section(0, ImportLine::getUser);
+    }
+
+    Iterator<RecipeRecord> recipes() {
+        return section(1, ImportLine::getRecipe);
+    }
+
+    Iterator<ReviewRecord> reviews() {
+        return section(2, ImportLine::getReview);
+    }
+
+    private <T> Iterator<T> section(int index, Function<ImportLine, T> getter) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                if (pending == null) {
+                    if (!lines.hasNext()) return false;
+                    pending = lines.next();
+                }
+                int section = pending.section();
+                if (section < index) {
+                    throw new IllegalArgumentException("Found a " + SECTIONS[section] + " line after the "
+                            + SECTIONS[index] + " lines, lines must be grouped as users, recipes, reviews");
+                }
+                return section == index;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                T record = getter.apply(pending);
+                pending = null;
+                return record;
+            }
+        };
+    }
+}
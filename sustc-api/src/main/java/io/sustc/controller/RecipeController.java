@@ -1,6 +1,7 @@
 package io.sustc.controller;
 
 import io.sustc.dto.AuthInfo;
+import io.sustc.dto.CacheStats;
 import io.sustc.dto.PageResult;
 import io.sustc.dto.RecipeRecord;
 import io.sustc.service.RecipeService;
@@ -100,6 +101,12 @@ public class RecipeController {
         return ResponseEntity.ok(recipeService.getTop3MostComplexRecipesByIngredients());
     }
 
+    // 8. 食谱详情缓存命中统计
+    @GetMapping("/stats/cache")
+    public ResponseEntity<CacheStats> getCacheStats() {
+        return ResponseEntity.ok(recipeService.getCacheStats());
+    }
+
     @Data
     static class CreateRecipeReq {
         private AuthInfo auth;
@@ -32,6 +32,20 @@ public class UserController {
         return id != -1 ? ResponseEntity.ok(id) : ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
     }
 
+    // 2.1 登录并获取会话令牌
+    @PostMapping("/session")
+    public ResponseEntity<String> issueToken(@RequestBody AuthInfo auth) {
+        String token = userService.issueToken(auth);
+        return token != null ? ResponseEntity.ok(token) : ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+    }
+
+    // 2.2 注销会话令牌
+    @DeleteMapping("/session")
+    public ResponseEntity<Void> revokeToken(@RequestBody AuthInfo auth) {
+        userService.revokeToken(auth.getToken());
+        return ResponseEntity.ok().build();
+    }
+
     // 3. 删除账号
     @DeleteMapping("/{userId}")
     public ResponseEntity<Boolean> deleteAccount(
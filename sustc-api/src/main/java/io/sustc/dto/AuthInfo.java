@@ -23,4 +23,10 @@ public class AuthInfo implements Serializable {
      */
     private String password;
 
+    /**
+     * A session token from {@code UserService#issueToken}, accepted in place of the password.
+     * {@code authorId} may be left {@code 0} when it is set; it is then filled in from the token.
+     */
+    private String token;
+
 }
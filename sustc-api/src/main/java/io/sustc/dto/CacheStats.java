@@ -0,0 +1,41 @@
+package io.sustc.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Counters of an in-process cache since the application started.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStats implements Serializable {
+
+    private int size;
+
+    private int capacity;
+
+    private long hits;
+
+    private long misses;
+
+    /**
+     * Entries dropped to stay within {@code capacity}.
+     */
+    private long evictions;
+
+    /**
+     * Entries dropped because the underlying rows changed.
+     */
+    private long invalidations;
+
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
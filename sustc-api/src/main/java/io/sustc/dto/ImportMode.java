@@ -0,0 +1,23 @@
+package io.sustc.dto;
+
+/**
+ * The way rows are shipped to PostgreSQL during {@code DatabaseService#importData}.
+ */
+public enum ImportMode {
+
+    /**
+     * Stream every table through {@code COPY ... FROM STDIN}.
+     */
+    COPY,
+
+    /**
+     * Send one bound {@code INSERT} per row in JDBC batches.
+     */
+    BATCH,
+
+    /**
+     * Copy the raw records into {@code UNLOGGED} staging tables, then clean and move them
+     * into the real tables with one {@code INSERT ... SELECT} per table.
+     */
+    STAGED,
+}
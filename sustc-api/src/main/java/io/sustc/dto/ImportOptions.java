@@ -0,0 +1,41 @@
+package io.sustc.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Per-import switches for {@code DatabaseService#importData}.
+ * Any field left {@code null} falls back to the configured {@code sustc.import.*} default.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportOptions implements Serializable {
+
+    /**
+     * How rows are written.
+     */
+    private ImportMode mode;
+
+    /**
+     * Load into bare tables first, then build keys, indexes, counters and triggers in bulk.
+     */
+    private Boolean deferConstraints;
+
+    /**
+     * Number of connections loading independent tables at the same time.
+     * {@code 1} runs the whole import in a single transaction.
+     */
+    private Integer parallelism;
+
+    /**
+     * Rows per committed chunk, {@code 0} to import without chunks.
+     * Re-running a failed chunked import with the same records and chunk size resumes it.
+     */
+    private Integer chunkSize;
+}
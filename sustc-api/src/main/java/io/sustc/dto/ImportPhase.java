@@ -0,0 +1,48 @@
+package io.sustc.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Measurements of one phase of an import, e.g. writing one table or building the keys.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportPhase implements Serializable {
+
+    /**
+     * The phase name, the lower-case table name for table loads.
+     */
+    private String name;
+
+    /**
+     * Rows written or updated during the phase.
+     */
+    private long rows;
+
+    /**
+     * Wall-clock time from the first start to the last end of the phase.
+     * A table loaded in several slices or chunks is counted once.
+     */
+    private long elapsedNanos;
+
+    /**
+     * Payload bytes sent through {@code COPY}, {@code 0} for phases that do not stream rows.
+     */
+    private long bytesSent;
+
+    /**
+     * Highest heap usage seen while the phase ran. Phases running at the same time share one measurement.
+     */
+    private long heapHighWaterBytes;
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows * 1e9 / elapsedNanos;
+    }
+}
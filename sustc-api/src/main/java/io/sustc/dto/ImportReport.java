@@ -0,0 +1,25 @@
+package io.sustc.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Per-phase metrics of the last import, in the order the phases started.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportReport implements Serializable {
+
+    private ImportMode mode;
+
+    private long elapsedNanos;
+
+    private List<ImportPhase> phases;
+}
@@ -1,9 +1,12 @@
 package io.sustc.service;
 
+import io.sustc.dto.ImportOptions;
+import io.sustc.dto.ImportReport;
 import io.sustc.dto.ReviewRecord;
 import io.sustc.dto.UserRecord;
 import io.sustc.dto.RecipeRecord;
 
+import java.util.Iterator;
 import java.util.List;
 
 public interface DatabaseService {
@@ -29,6 +32,68 @@ public interface DatabaseService {
             List<RecipeRecord> recipeRecords
     );
 
+    /**
+     * Imports data to an empty database, choosing how the import is carried out.
+     *
+     * @param reviewRecords review records parsed from csv
+     * @param userRecords  user records parsed from csv
+     * @param recipeRecords recipe records parsed from csv
+     * @param options per-import switches, {@code null} fields use the configured defaults
+     */
+    void importData(
+            List<ReviewRecord> reviewRecords,
+            List<UserRecord> userRecords,
+            List<RecipeRecord> recipeRecords,
+            ImportOptions options
+    );
+
+    /**
+     * Imports data to an empty database from record streams, writing rows while they are still being read,
+     * so the records never have to be held in memory all at once.
+     * <p>
+     * Each source is consumed exactly once, and fully, in the order users, recipes, reviews,
+     * so the three may be views over one underlying stream. A {@link java.util.Spliterator}
+     * can be passed through {@link java.util.Spliterators#iterator(java.util.Spliterator)}.
+     * Constraints are always built after the load, whatever {@code options} says.
+     *
+     * @param reviewRecords review records, {@code null} for none
+     * @param userRecords  user records, {@code null} for none
+     * @param recipeRecords recipe records, {@code null} for none
+     * @param options per-import switches, {@code null} fields use the configured defaults
+     */
+    void importStream(
+            Iterator<ReviewRecord> reviewRecords,
+            Iterator<UserRecord> userRecords,
+            Iterator<RecipeRecord> recipeRecords,
+            ImportOptions options
+    );
+
+    /**
+     * Per-phase timings, row counts, bytes sent and heap peaks of the last
+     * {@code importData} or {@code importStream} call.
+     *
+     * @return the report, or {@code null} if nothing was imported since startup
+     */
+    ImportReport getLastImportReport();
+
+    /**
+     * Applies changed or new records to an already imported database, without reloading the rest.
+     * <p>
+     * Rows are matched by the ids carried in the records and inserted or overwritten.
+     * Each record replaces what hangs off it: a recipe its ingredients, a review its likes,
+     * a user the follow edges it takes part in. Ratings, review counts and follow counters
+     * are recomputed only for the rows affected.
+     *
+     * @param reviewRecords changed review records, may be {@code null}
+     * @param userRecords  changed user records, may be {@code null}
+     * @param recipeRecords changed recipe records, may be {@code null}
+     */
+    void importDelta(
+            List<ReviewRecord> reviewRecords,
+            List<UserRecord> userRecords,
+            List<RecipeRecord> recipeRecords
+    );
+
     /**
      * Delete all tables in the database.
      * <p>
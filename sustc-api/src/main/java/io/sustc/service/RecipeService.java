@@ -1,6 +1,7 @@
 package io.sustc.service;
 
 import io.sustc.dto.AuthInfo;
+import io.sustc.dto.CacheStats;
 import io.sustc.dto.PageResult;
 import io.sustc.dto.RecipeRecord;
 import org.springframework.lang.Nullable;
@@ -58,6 +59,8 @@ public interface RecipeService {
      *   <li>{@code "rating_desc"} — highest rating first</li>
      *   <li>{@code "date_desc"} — newest first</li>
      *   <li>{@code "calories_asc"} — lowest calories first</li>
+     *   <li>{@code "relevance"} — best full-text match first; the keyword is then matched by word stems
+     *       rather than as a substring. Without a keyword it behaves like no sort.</li>
      * </ul>
      *
      * <p>This method returns the <b>complete {@link RecipeRecord}</b> corresponding
@@ -257,4 +260,11 @@ public interface RecipeService {
      *         ingredient-heavy recipes.
      */
     List<Map<String, Object>> getTop3MostComplexRecipesByIngredients();
+
+    /**
+     * Reports the hit rate and occupancy of the cache behind {@link #getRecipeById(long)}.
+     *
+     * @return counters accumulated since the application started
+     */
+    CacheStats getCacheStats();
 }
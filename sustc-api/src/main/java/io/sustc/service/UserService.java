@@ -70,6 +70,25 @@ public interface UserService {
      */
     long login(AuthInfo auth);
 
+    /**
+     * Logs in like {@link #login(AuthInfo)} and issues a session token for the user.
+     *
+     * <p>The token can be passed as {@link AuthInfo#getToken()} to every method taking an {@link AuthInfo},
+     * in place of the password. It is checked in memory without querying the database, and stays valid
+     * until it expires, it is revoked with {@link #revokeToken(String)}, or the account is deleted.</p>
+     *
+     * @param auth authentication credentials containing {@code authorId} and {@code password}
+     * @return an opaque session token, or {@code null} if authentication fails
+     */
+    String issueToken(AuthInfo auth);
+
+    /**
+     * Revokes a session token issued by {@link #issueToken(AuthInfo)}. Unknown tokens are ignored.
+     *
+     * @param token the session token to revoke
+     */
+    void revokeToken(String token);
+
 
     /**
      * Soft-deletes a user account.
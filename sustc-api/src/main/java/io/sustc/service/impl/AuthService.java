@@ -0,0 +1,237 @@
+package io.sustc.service.impl;
+
+import io.sustc.config.AuthConfig;
+import io.sustc.dto.AuthInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Authenticates the {@link AuthInfo} passed to the write methods of every service.
+ * <p>
+ * Stored passwords are checked with {@link PasswordHasher}, which may run a slow hash. A successful check
+ * is remembered for {@code sustc.auth.cache-ttl}, so repeated calls from the same user skip both the database
+ * and the hash. Only successes are cached, and only as an HMAC of the password under a key that lives
+ * as long as this service.
+ * <p>
+ * {@link #invalidate} drops a user's entry and sessions once their account changes, now and again after
+ * the surrounding transaction completes, and each time bumps the user's generation. A check reads the
+ * generation before it reads the {@code users} row, and its result is only cached, or a token only
+ * issued, if the generation has not moved since. So once the change has committed, no check that read
+ * the old row can leave a cached login or a session behind.
+ * <p>
+ * An {@link AuthInfo} carrying a session token is checked against the {@link SessionStore} alone.
+ */
+@Service
+@Slf4j
+public class AuthService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AuthConfig authConfig;
+
+    @Autowired
+    private SessionStore sessionStore;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    private final SecretKeySpec digestKey = new SecretKeySpec(randomKey(), "HmacSHA256");
+
+    private final Map<Long, Verified> verified = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Verified> eldest) {
+            return size() > authConfig.getCacheSize();
+        }
+    };
+
+    /**
+     * Generations of the users invalidated since the last {@link #invalidateAll}, and the generation
+     * every user has at least since then. Both come from {@link #lastGeneration}, so they only grow.
+     * Guarded by {@code this}, like {@link #verified}.
+     */
+    private final Map<Long, Long> generations = new HashMap<>();
+
+    private long allGeneration;
+
+    private long lastGeneration;
+
+    /**
+     * Throws {@link SecurityException} unless {@code auth} names an active user and carries their password
+     * or a live session token.
+     */
+    public void checkAuth(AuthInfo auth) {
+        if (auth != null && auth.getToken() != null) {
+            checkToken(auth);
+            return;
+        }
+        if (auth == null || !verify(auth.getAuthorId(), auth.getPassword())) {
+            throw new SecurityException("auth error");
+        }
+    }
+
+    /**
+     * Whether {@code authorId} is an active user whose password is {@code password}.
+     */
+    public boolean verify(long authorId, String password) {
+        if (password == null) {
+            return false;
+        }
+        byte[] digest = digest(password);
+        if (isCached(authorId, digest)) {
+            return true;
+        }
+        long generation = generation(authorId);
+        if (!verifyStored(authorId, password)) {
+            return false;
+        }
+        remember(authorId, digest, generation);
+        return true;
+    }
+
+    /**
+     * Opens a session for {@code authorId} if {@code password} is theirs; returns the token, or {@code null}.
+     */
+    public String issueToken(long authorId, String password) {
+        if (password == null) {
+            return null;
+        }
+        long generation = generation(authorId);
+        if (!verify(authorId, password)) {
+            return null;
+        }
+        synchronized (this) {
+            // 校验期间账号被注销或修改
+            if (generation(authorId) != generation) {
+                return null;
+            }
+            return sessionStore.issue(authorId);
+        }
+    }
+
+    private boolean verifyStored(long authorId, String password) {
+        String stored;
+        try {
+            stored = jdbcTemplate.queryForObject(
+                    "select Password from users where AuthorId = ? and Is_Deleted = false",
+                    String.class,
+                    authorId
+            );
+        } catch (EmptyResultDataAccessException e) {
+            return false;
+        }
+        return passwordHasher.matches(password, stored);
+    }
+
+    /**
+     * Forgets the verified login and revokes the sessions of {@code authorId},
+     * now and when the current transaction commits.
+     */
+    public void invalidate(long authorId) {
+        evict(authorId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(authorId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Forgets every verified login and session, for when the users table is dropped or reloaded.
+     */
+    public void invalidateAll() {
+        synchronized (this) {
+            verified.clear();
+            generations.clear();
+            allGeneration = ++lastGeneration;
+        }
+        sessionStore.clear();
+    }
+
+    private void checkToken(AuthInfo auth) {
+        long authorId = sessionStore.resolve(auth.getToken());
+        if (authorId == -1 || (auth.getAuthorId() != 0 && auth.getAuthorId() != authorId)) {
+            throw new SecurityException("auth error");
+        }
+        auth.setAuthorId(authorId);
+    }
+
+    private synchronized boolean isCached(long authorId, byte[] digest) {
+        Verified entry = verified.get(authorId);
+        if (entry == null) {
+            return false;
+        }
+        if (entry.expiresAt - System.nanoTime() <= 0) {
+            verified.remove(authorId);
+            return false;
+        }
+        return MessageDigest.isEqual(entry.digest, digest);
+    }
+
+    private synchronized long generation(long authorId) {
+        return Math.max(generations.getOrDefault(authorId, 0L), allGeneration);
+    }
+
+    private synchronized void remember(long authorId, byte[] digest, long generation) {
+        long ttl = authConfig.getCacheTtl().toNanos();
+        if (ttl > 0 && authConfig.getCacheSize() > 0 && generation(authorId) == generation) {
+            verified.put(authorId, new Verified(digest, System.nanoTime() + ttl));
+        }
+    }
+
+    private void evict(long authorId) {
+        synchronized (this) {
+            verified.remove(authorId);
+            generations.put(authorId, ++lastGeneration);
+        }
+        // 在递增代数之后撤销：此前签发的令牌由这里撤销，此后的签发会被代数检查拒绝
+        sessionStore.revokeAll(authorId);
+    }
+
+    private byte[] digest(String password) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(digestKey);
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static byte[] randomKey() {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
+
+    private static class Verified {
+
+        private final byte[] digest;
+
+        private final long expiresAt;
+
+        Verified(byte[] digest, long expiresAt) {
+            this.digest = digest;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
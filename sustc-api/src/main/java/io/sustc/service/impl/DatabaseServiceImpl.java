@@ -1,15 +1,32 @@
 package io.sustc.service.impl;
 
+import io.sustc.config.ImportConfig;
+import io.sustc.dto.ImportMode;
+import io.sustc.dto.ImportOptions;
+import io.sustc.dto.ImportPhase;
+import io.sustc.dto.ImportReport;
 import io.sustc.dto.ReviewRecord;
 import io.sustc.dto.UserRecord;
 import io.sustc.dto.RecipeRecord;
 import io.sustc.service.DatabaseService;
+import io.sustc.service.impl.importer.ChunkedImporter;
+import io.sustc.service.impl.importer.DeltaImporter;
+import io.sustc.service.impl.importer.ImportMetrics;
+import io.sustc.service.impl.importer.ImportRecords;
+import io.sustc.service.impl.importer.ImportScheduler;
+import io.sustc.service.impl.importer.ImportSchema;
+import io.sustc.service.impl.importer.ImportStrategy;
+import io.sustc.service.impl.importer.ImportTable;
+import io.sustc.service.impl.importer.LongPairBuffer;
+import io.sustc.service.impl.importer.StreamingImporter;
+import io.sustc.service.impl.importer.TableLoad;
+import io.sustc.service.impl.search.RecipeSearchIndex;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.BatchPreparedStatementSetter;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.sql.*;
 import java.util.*;
@@ -45,417 +62,353 @@ public class DatabaseServiceImpl implements DatabaseService {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
-    private String getGender(String gender) {
-        if(gender != null && gender.toUpperCase().equals("MALE")) return "Male";
-        if(gender != null && gender.toUpperCase().equals("FEMALE")) return "Female";
-        return gender;
-    }
+    @Autowired
+    private ImportConfig importConfig;
+
+    @Autowired
+    private List<ImportStrategy> importStrategies;
+
+    @Autowired
+    private ImportSchema importSchema;
+
+    @Autowired
+    private ImportScheduler importScheduler;
+
+    @Autowired
+    private StreamingImporter streamingImporter;
+
+    @Autowired
+    private ChunkedImporter chunkedImporter;
+
+    @Autowired
+    private DeltaImporter deltaImporter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private RecipeCache recipeCache;
+
+    @Autowired
+    private RecipeSearchIndex recipeSearchIndex;
+
+    private volatile ImportReport lastImportReport;
 
     @Override
-    @Transactional
     public void importData(
             List<ReviewRecord> reviewRecords,
             List<UserRecord> userRecords,
             List<RecipeRecord> recipeRecords) {
+        importData(reviewRecords, userRecords, recipeRecords, null);
+    }
 
-        // ddl to create tables.
-        createTables();
-
-
-//        log.info("Import completed: users={}, recipes={}, reviews={}",
-//                userRecords == null ? 0 : userRecords.size(),
-//                recipeRecords == null ? 0 : recipeRecords.size(),
-//                reviewRecords == null ? 0 : reviewRecords.size());
-
-//        for (ReviewRecord r : reviewRecords) {
-//            if(r.getRecipeId() == 454) log.info("review rating: {}",r.getRating());
-//        }
+    @Override
+    public void importData(
+            List<ReviewRecord> reviewRecords,
+            List<UserRecord> userRecords,
+            List<RecipeRecord> recipeRecords,
+            ImportOptions options) {
+        ImportOptions resolved = importConfig.resolve(options);
+        ImportStrategy strategy = getImportStrategy(resolved.getMode());
+        int parallelism = resolved.getParallelism();
+        int chunkSize = resolved.getChunkSize();
+        ImportMetrics metrics = new ImportMetrics(resolved.getMode());
+        List<UserRecord> users = hashPasswords(userRecords, metrics);
+
+        if (chunkSize > 0) {
+            Map<ImportTable, List<TableLoad>> plan = buildChunkedPlan(strategy, reviewRecords, users, recipeRecords, chunkSize);
+            importInChunks(resolved, strategy, metrics.instrument(plan), chunkSize, metrics);
+        } else {
+            Map<ImportTable, List<TableLoad>> plan = metrics.instrument(
+                    buildImportPlan(strategy, reviewRecords, users, recipeRecords, parallelism));
+            if (parallelism <= 1) {
+                // Everything in one transaction on one connection
+                transactionTemplate.executeWithoutResult(status -> importSequentially(resolved, strategy, plan, metrics));
+            } else {
+                importInParallel(resolved, strategy, plan, parallelism, metrics);
+            }
+        }
 
-//        for (int i = 4136; i < 4137; i++) {
-//            log.info("aggr {}: {}",i,recipeRecords.get(i).getAggregatedRating());
-//        }
+        reportImport(metrics);
+        recipeSearchIndex.reload();
+    }
 
-        // Basic validations
-        if ((userRecords == null || userRecords.isEmpty())
-                && (recipeRecords == null || recipeRecords.isEmpty())
-                && (reviewRecords == null || reviewRecords.isEmpty())) {
-            return;
+    @Override
+    public void importStream(
+            Iterator<ReviewRecord> reviewRecords,
+            Iterator<UserRecord> userRecords,
+            Iterator<RecipeRecord> recipeRecords,
+            ImportOptions options) {
+        ImportOptions resolved = importConfig.resolve(options);
+        ImportStrategy strategy = getImportStrategy(resolved.getMode());
+        if (!resolved.getDeferConstraints()) {
+            log.warn("Streaming import always builds constraints after the load, ignoring deferConstraints=false");
         }
 
-//        for (int i = 0; i < 100; i++) {
-//            log.debug("importData show: {}", userRecords.get(i).toString());
-//        }
+        ImportMetrics metrics = new ImportMetrics(resolved.getMode());
+
+        // Main rows and their edges are written on two connections at once, so foreign keys can only come afterwards
+        transactionTemplate.executeWithoutResult(status -> createSchema(true, metrics));
+        try {
+            streamingImporter.load(strategy, metrics,
+                    userRecords != null ? passwordHasher.hashing(userRecords) : Collections.emptyIterator(),
+                    recipeRecords != null ? recipeRecords : Collections.emptyIterator(),
+                    reviewRecords != null ? reviewRecords : Collections.emptyIterator());
+            transactionTemplate.executeWithoutResult(status -> finishDeferredSchema(strategy.distinctEdges(), metrics));
+        } catch (RuntimeException e) {
+            log.error("Streaming import failed, dropping the partially imported tables", e);
+            importSchema.dropTables();
+            throw e;
+        }
 
-        // 1) Insert users
-        if (userRecords != null && !userRecords.isEmpty()) {
-            final String userSql = "INSERT INTO users (AuthorName, Gender, Age, followercount, followeecount, Password, Is_Deleted) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?)";
-
-            jdbcTemplate.batchUpdate(userSql, new BatchPreparedStatementSetter() {
-                @Override
-                public void setValues(PreparedStatement ps, int i) throws SQLException {
-                    UserRecord u = userRecords.get(i);
-                    ps.setString(1, u.getAuthorName());
-                    ps.setString(2, getGender(u.getGender()));
-                    ps.setInt(3, u.getAge());
-                    ps.setLong(4, u.getFollowers());
-                    ps.setLong(5, u.getFollowing());
-                    ps.setString(6, u.getPassword());
-                    ps.setBoolean(7, u.isDeleted());
-                }
+        reportImport(metrics);
+        recipeSearchIndex.reload();
+    }
 
-                @Override
-                public int getBatchSize() {
-                    return userRecords.size();
-                }
+    /**
+     * Hashes the imported passwords on every core before any row is written,
+     * into copies of the records that are then imported in their place.
+     */
+    private List<UserRecord> hashPasswords(List<UserRecord> userRecords, ImportMetrics metrics) {
+        if (userRecords == null || !passwordHasher.isHashing()) return userRecords;
+        List<List<UserRecord>> hashed = new ArrayList<>(1);
+        try {
+            metrics.measure("passwords", () -> {
+                hashed.add(passwordHasher.hashAll(userRecords));
+                return userRecords.size();
             });
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
         }
+        return hashed.get(0);
+    }
 
-        // 2) Insert recipes
-        if (recipeRecords != null && !recipeRecords.isEmpty()) {
-            final String recipeSql = "INSERT INTO recipes (Name, AuthorId, CookTime, PrepTime, TotalTime, DatePublished, Description, RecipeCategory, Calories, FatContent, SaturatedFatContent, CholesterolContent, SodiumContent, CarbohydrateContent, FiberContent, SugarContent, ProteinContent, RecipeServings, RecipeYield, aggregatedrating, reviewcount) " +
-                    "VALUES ( ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-
-            jdbcTemplate.batchUpdate(recipeSql, new BatchPreparedStatementSetter() {
-                @Override
-                public void setValues(PreparedStatement ps, int i) throws SQLException {
-                    RecipeRecord r = recipeRecords.get(i);
-                    ps.setString(1, r.getName());
-                    ps.setLong(2, r.getAuthorId());
-                    ps.setString(3, r.getCookTime());
-                    ps.setString(4, r.getPrepTime());
-                    ps.setString(5, r.getTotalTime());
-                    ps.setTimestamp(6, r.getDatePublished());
-                    ps.setString(7, r.getDescription());
-                    ps.setString(8, r.getRecipeCategory());
-                    ps.setFloat(9, r.getCalories());
-                    ps.setFloat(10, r.getFatContent());
-                    ps.setFloat(11, r.getSaturatedFatContent());
-                    ps.setFloat(12, r.getCholesterolContent());
-                    ps.setFloat(13, r.getSodiumContent());
-                    ps.setFloat(14, r.getCarbohydrateContent());
-                    ps.setFloat(15, r.getFiberContent());
-                    ps.setFloat(16, r.getSugarContent());
-                    ps.setFloat(17, r.getProteinContent());
-                    // RecipeServings in createTables is VARCHAR(100) in this implementation; DTO has int - write as int
-                    ps.setInt(18, r.getRecipeServings());
-                    ps.setString(19, r.getRecipeYield());
-                    ps.setFloat(20, r.getAggregatedRating());
-                    ps.setInt(21, r.getReviewCount());
-                }
+    @Override
+    public ImportReport getLastImportReport() {
+        return lastImportReport;
+    }
 
-                @Override
-                public int getBatchSize() {
-                    return recipeRecords.size();
-                }
-            });
+    private void reportImport(ImportMetrics metrics) {
+        lastImportReport = metrics.report();
+        for (ImportPhase phase : lastImportReport.getPhases()) {
+            log.info("Import phase {}: rows={}, time={} ms, rows/s={}, bytes={}, heap peak={} MB",
+                    phase.getName(), phase.getRows(), phase.getElapsedNanos() / 1_000_000,
+                    (long) phase.getRowsPerSecond(), phase.getBytesSent(), phase.getHeapHighWaterBytes() >> 20);
         }
+        log.info("Actually data size: user={},recipes={},reviews={}",
+                jdbcTemplate.queryForObject("select count(*) from users",Integer.class),
+                jdbcTemplate.queryForObject("select count(*) from recipes",Integer.class),
+                jdbcTemplate.queryForObject("select count(*) from reviews",Integer.class));
+    }
 
-        // 3) Insert recipe ingredients (recipe_ingredients)
-        // Use ON CONFLICT DO NOTHING to tolerate duplicates if table has PK constraint
+    @Override
+    public void importDelta(
+            List<ReviewRecord> reviewRecords,
+            List<UserRecord> userRecords,
+            List<RecipeRecord> recipeRecords) {
+        List<UserRecord> users = passwordHasher.hashAll(userRecords);
+        transactionTemplate.executeWithoutResult(status -> deltaImporter.apply(reviewRecords, users, recipeRecords));
+        // 增量数据可能修改密码或注销用户
+        authService.invalidateAll();
+        recipeCache.invalidateAll();
+        recipeSearchIndex.reload();
+    }
+
+    /**
+     * Lists the loads of every table. Tables whose rows do not depend on insertion order
+     * and cannot produce duplicates across slices are split into {@code parallelism} slices.
+     */
+    private Map<ImportTable, List<TableLoad>> buildImportPlan(
+            ImportStrategy strategy,
+            List<ReviewRecord> reviewRecords,
+            List<UserRecord> userRecords,
+            List<RecipeRecord> recipeRecords,
+            int parallelism) {
+        Map<ImportTable, List<TableLoad>> plan = new EnumMap<>(ImportTable.class);
+        if (userRecords != null && !userRecords.isEmpty()) {
+            plan.put(ImportTable.USERS, List.of(conn -> strategy.writeUsers(conn, userRecords)));
+            plan.put(ImportTable.FOLLOW, List.of(conn -> strategy.writeFollows(conn, userRecords)));
+        }
         if (recipeRecords != null && !recipeRecords.isEmpty()) {
-            List<Map.Entry<Long, String>> ingredientPairs = new ArrayList<>();
-            for (RecipeRecord r : recipeRecords) {
-                String[] parts = r.getRecipeIngredientParts();
-                if (parts == null || parts.length == 0) continue;
-                // Clean, distinct, sorted case-insensitively
-                List<String> cleaned = new ArrayList<>();
-                for (String p : parts) {
-                    if (p == null) continue;
-                    String t = p.trim();
-                    if (!t.isEmpty()) cleaned.add(t);
-                }
-                cleaned = new ArrayList<>(new LinkedHashSet<>(cleaned)); // keep order but dedup
-                cleaned.sort(String.CASE_INSENSITIVE_ORDER);
-                for (String p : cleaned) {
-                    ingredientPairs.add(new AbstractMap.SimpleEntry<>(r.getRecipeId(), p));
-                }
+            plan.put(ImportTable.RECIPES, List.of(conn -> strategy.writeRecipes(conn, recipeRecords)));
+            List<TableLoad> ingredients = new ArrayList<>();
+            for (List<RecipeRecord> slice : slices(recipeRecords, parallelism)) {
+                ingredients.add(conn -> strategy.writeIngredients(conn, slice));
             }
-
-            if (!ingredientPairs.isEmpty()) {
-                final String ingrSql = "INSERT INTO ingredient (RecipeId, Ingredient) VALUES (?, ?) ON CONFLICT DO NOTHING";
-                jdbcTemplate.batchUpdate(ingrSql, new BatchPreparedStatementSetter() {
-                    @Override
-                    public void setValues(PreparedStatement ps, int i) throws SQLException {
-                        Map.Entry<Long, String> e = ingredientPairs.get(i);
-                        ps.setLong(1, e.getKey());
-                        ps.setString(2, e.getValue());
-                    }
-
-                    @Override
-                    public int getBatchSize() {
-                        return ingredientPairs.size();
-                    }
-                });
+            plan.put(ImportTable.INGREDIENT, ingredients);
+        }
+        if (reviewRecords != null && !reviewRecords.isEmpty()) {
+            plan.put(ImportTable.REVIEWS, List.of(conn -> strategy.writeReviews(conn, reviewRecords)));
+            List<TableLoad> likes = new ArrayList<>();
+            for (List<ReviewRecord> slice : slices(reviewRecords, parallelism)) {
+                // Slices hold different reviews, so their like pairs never overlap
+                likes.add(conn -> strategy.writeLikes(conn, slice));
             }
+            plan.put(ImportTable.LIKE_REVIEW, likes);
         }
+        return plan;
+    }
 
-        // 4) Insert reviews
-        if (reviewRecords != null && !reviewRecords.isEmpty()) {
-            final String reviewSql = "INSERT INTO reviews (RecipeId, AuthorId, Rating, Review, DateSubmitted, DateModified) VALUES (?, ?, ?, ?, ?, ?)";
-            jdbcTemplate.batchUpdate(reviewSql, new BatchPreparedStatementSetter() {
-                @Override
-                public void setValues(PreparedStatement ps, int i) throws SQLException {
-                    ReviewRecord rv = reviewRecords.get(i);
-                    ps.setLong(1, rv.getRecipeId());
-                    ps.setLong(2, rv.getAuthorId());
-                    ps.setFloat(3, rv.getRating());
-                    ps.setString(4, rv.getReview());
-                    ps.setTimestamp(5, rv.getDateSubmitted());
-                    ps.setTimestamp(6, rv.getDateModified());
-                }
+    /**
+     * Cuts every table into loads of at most {@code chunkSize} source records, always in the same order,
+     * so that a resumed import finds its committed chunks at the same positions.
+     */
+    private Map<ImportTable, List<TableLoad>> buildChunkedPlan(
+            ImportStrategy strategy,
+            List<ReviewRecord> reviewRecords,
+            List<UserRecord> userRecords,
+            List<RecipeRecord> recipeRecords,
+            int chunkSize) {
+        Map<ImportTable, List<TableLoad>> plan = new EnumMap<>(ImportTable.class);
+        List<TableLoad> users = new ArrayList<>(), follows = new ArrayList<>();
+        for (List<UserRecord> chunk : chunks(userRecords, chunkSize)) {
+            users.add(conn -> strategy.writeUsers(conn, chunk));
+        }
+        // The same edge may be listed by users of different chunks, so follows are chunked by distinct pair instead
+        LongPairBuffer followPairs = userRecords != null ? ImportRecords.collectFollows(userRecords) : new LongPairBuffer();
+        for (int from = 0; from < followPairs.size(); from += chunkSize) {
+            LongPairBuffer chunk = followPairs.slice(from, Math.min(followPairs.size(), from + chunkSize));
+            follows.add(conn -> strategy.writeFollowPairs(conn, List.of(chunk)));
+        }
+        List<TableLoad> recipes = new ArrayList<>(), ingredients = new ArrayList<>();
+        for (List<RecipeRecord> chunk : chunks(recipeRecords, chunkSize)) {
+            recipes.add(conn -> strategy.writeRecipes(conn, chunk));
+            ingredients.add(conn -> strategy.writeIngredients(conn, chunk));
+        }
+        List<TableLoad> reviews = new ArrayList<>(), likes = new ArrayList<>();
+        for (List<ReviewRecord> chunk : chunks(reviewRecords, chunkSize)) {
+            reviews.add(conn -> strategy.writeReviews(conn, chunk));
+            likes.add(conn -> strategy.writeLikes(conn, chunk));
+        }
+        plan.put(ImportTable.USERS, users);
+        plan.put(ImportTable.FOLLOW, follows);
+        plan.put(ImportTable.RECIPES, recipes);
+        plan.put(ImportTable.INGREDIENT, ingredients);
+        plan.put(ImportTable.REVIEWS, reviews);
+        plan.put(ImportTable.LIKE_REVIEW, likes);
+        return plan;
+    }
 
-                @Override
-                public int getBatchSize() {
-                    return reviewRecords.size();
-                }
-            });
+    private static <T> List<List<T>> slices(List<T> list, int count) {
+        return chunks(list, Math.max(1, (list.size() + count - 1) / Math.max(count, 1)));
+    }
+
+    private static <T> List<List<T>> chunks(List<T> list, int size) {
+        List<List<T>> chunks = new ArrayList<>();
+        if (list == null) return chunks;
+        for (int from = 0; from < list.size(); from += size) {
+            chunks.add(list.subList(from, Math.min(list.size(), from + size)));
         }
+        return chunks;
+    }
 
-        // 5) Insert review likes (table review_likes has columns ReviewId, AuthorId in createTables)
-        if (reviewRecords != null && !reviewRecords.isEmpty()) {
-            List<Map.Entry<Long, Long>> reviewLikePairs = new ArrayList<>();
-            for (ReviewRecord rv : reviewRecords) {
-                long rid = rv.getReviewId();
-                long[] likes = rv.getLikes();
-                if (likes == null || likes.length == 0) continue;
-                for (long liker : likes) {
-                    reviewLikePairs.add(new AbstractMap.SimpleEntry<>(rid, liker));
+    private void importSequentially(ImportOptions options, ImportStrategy strategy,
+                                    Map<ImportTable, List<TableLoad>> plan, ImportMetrics metrics) {
+        boolean deferred = options.getDeferConstraints();
+        createSchema(deferred, metrics);
+
+        // Bound to the surrounding transaction, so every table is written on the same connection
+        Connection conn = DataSourceUtils.getConnection(dataSource);
+        try {
+            for (ImportTable table : ImportTable.values()) {
+                for (TableLoad load : plan.getOrDefault(table, List.of())) {
+                    load.load(conn);
                 }
             }
-            if (!reviewLikePairs.isEmpty()) {
-                final String likeSql = "INSERT INTO like_review (LikeReviewId, AuthorId) VALUES (?, ?) ON CONFLICT DO NOTHING";
-                jdbcTemplate.batchUpdate(likeSql, new BatchPreparedStatementSetter() {
-                    @Override
-                    public void setValues(PreparedStatement ps, int i) throws SQLException {
-                        Map.Entry<Long, Long> e = reviewLikePairs.get(i);
-                        ps.setLong(1, e.getKey());
-                        ps.setLong(2, e.getValue());
-                    }
-
-                    @Override
-                    public int getBatchSize() {
-                        return reviewLikePairs.size();
-                    }
-                });
-            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(conn, dataSource);
         }
 
-        // 6) Insert user follows (user_follows table created in createTables)
-        // Build pairs from UserRecord.followerUsers and followingUsers
-        if (userRecords != null && !userRecords.isEmpty()) {
-            // Use a set to deduplicate pairs
-            List<long[]> follows = new ArrayList<>();
-
-            for (UserRecord u : userRecords) {
-                long author = u.getAuthorId();
-
-                long[] followers = u.getFollowerUsers();
-                if (followers != null) {
-                    for (long f : followers) {
-                        if (f != author) {
-                            follows.add(new long[]{f, author});
-                        }
-                    }
-                }
-
-                long[] following = u.getFollowingUsers();
-                if (following != null) {
-                    for (long fo : following) {
-                        if (fo != author) {
-                            follows.add(new long[]{author, fo});
-                        }
-                    }
-                }
-            }
+        if (deferred) {
+            finishDeferredSchema(strategy.distinctEdges(), metrics);
+        }
+    }
 
-            if (!follows.isEmpty()) {
-                final String followSql =
-                        "INSERT INTO follow (FollowerId, FolloweeId) VALUES (?, ?) ON CONFLICT DO NOTHING";
-
-                jdbcTemplate.batchUpdate(followSql, new BatchPreparedStatementSetter() {
-                    @Override
-                    public void setValues(PreparedStatement ps, int i) throws SQLException {
-                        ps.setLong(1, follows.get(i)[0]);
-                        ps.setLong(2, follows.get(i)[1]);
-                    }
-
-                    @Override
-                    public int getBatchSize() {
-                        return follows.size();
-                    }
-                });
+    /**
+     * Loads independent tables side by side on separate connections. Every table commits on its own,
+     * so on failure the tables are dropped again to leave the database as empty as it was.
+     */
+    private void importInParallel(ImportOptions options, ImportStrategy strategy,
+                                  Map<ImportTable, List<TableLoad>> plan, int parallelism, ImportMetrics metrics) {
+        boolean deferred = options.getDeferConstraints();
+        // The tables must be committed before other connections can write into them
+        transactionTemplate.executeWithoutResult(status -> createSchema(deferred, metrics));
+
+        try {
+            importScheduler.run(plan, parallelism);
+            if (deferred) {
+                transactionTemplate.executeWithoutResult(status -> finishDeferredSchema(strategy.distinctEdges(), metrics));
             }
-
-
-            // Optionally, ensure Followers/Following counters match provided userRecords (some schemas expect these fields to be prefilled).
-            // We'll update all users' counters from the provided DTO values to be safe.
-//            final String updateCountSql = "UPDATE users SET FollowerCount = ?, FolloweeCount = ? WHERE AuthorId = ?";
-//            jdbcTemplate.batchUpdate(updateCountSql, new BatchPreparedStatementSetter() {
-//                @Override
-//                public void setValues(PreparedStatement ps, int i) throws SQLException {
-//                    UserRecord u = userRecords.get(i);
-//                    ps.setLong(1, u.getFollowers());
-//                    ps.setLong(2, u.getFollowing());
-//                    ps.setLong(3, u.getAuthorId());
-//                }
-//
-//                @Override
-//                public int getBatchSize() {
-//                    return userRecords.size();
-//                }
-//            });
+        } catch (RuntimeException e) {
+            log.error("Import failed, dropping the partially imported tables", e);
+            importSchema.dropTables();
+            throw e;
         }
+    }
 
-        // 7) (Optional) Recompute ratings from reviews to ensure consistency (if rating trigger not present)
-        // We'll compute aggregated rating and review count per recipe from inserted reviews to be safe.
-//        try {
-//            String recomputeSql = "UPDATE recipes r SET (AggregatedRating, ReviewCount) = (" +
-//                    "  COALESCE(t.avg_rating, 0), COALESCE(t.cnt, 0)) " +
-//                    "FROM (" +
-//                    "  SELECT RecipeId, ROUND(AVG(Rating)::numeric * 2) / 2 AS avg_rating, COUNT(*) AS cnt " +
-//                    "  FROM reviews GROUP BY RecipeId" +
-//                    ") t WHERE r.RecipeId = t.RecipeId";
-//            jdbcTemplate.update(recomputeSql);
-//        } catch (Exception ex) {
-//            log.warn("Failed to recompute recipe ratings - continuing. Reason: {}", ex.getMessage());
-//        }
-
-
-        log.info("Actually data size: user={},recipes={},reviews={},cnt={}",
-                jdbcTemplate.queryForObject("select count(*) from users",Integer.class),
-                jdbcTemplate.queryForObject("select count(*) from recipes",Integer.class),
-                jdbcTemplate.queryForObject("select count(*) from reviews",Integer.class));
+    /**
+     * Commits every chunk on its own and keeps the tables when a chunk fails,
+     * so that running the same import again continues after the last committed chunk.
+     * Chunks run one after another, {@code parallelism} does not apply.
+     */
+    private void importInChunks(ImportOptions options, ImportStrategy strategy,
+                                Map<ImportTable, List<TableLoad>> plan, int chunkSize, ImportMetrics metrics) {
+        boolean deferred = options.getDeferConstraints();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (chunkedImporter.isResumable()) {
+                chunkedImporter.checkResumable(chunkSize, deferred);
+                log.info("Found an unfinished chunked import, resuming it");
+                return;
+            }
+            createSchema(deferred, metrics);
+            chunkedImporter.start(chunkSize, deferred);
+        });
 
-//        int aggrcnt = 0;
-//        for(RecipeRecord r : recipeRecords) if(r.getAggregatedRating() != 0) aggrcnt++;
-//        log.info(" aggr count: {}" , aggrcnt);
+        chunkedImporter.run(plan);
 
+        transactionTemplate.executeWithoutResult(status -> {
+            if (deferred) {
+                finishDeferredSchema(strategy.distinctEdges(), metrics);
+            }
+            chunkedImporter.complete();
+        });
     }
 
+    /**
+     * ddl to create tables. With deferred constraints only bare tables exist during the load.
+     */
+    private void createSchema(boolean deferred, ImportMetrics metrics) {
+        metrics.measureSchema("schema", deferred ? importSchema::createTables : importSchema::createAll);
+    }
 
-    private void createTables() {
-        String[] createTableSQLs = {
-                "create table users (\n" +
-                        "    AuthorId bigserial,\n" +
-                        "    AuthorName varchar not null check ( AuthorName != '' ),\n" +
-                        "    Gender varchar check ( Gender = 'Male' or Gender = 'Female' ),\n" +
-                        "    Age int check ( Age > 0 ),\n" +
-                        "    Is_Deleted boolean,\n" +
-                        "    FollowerCount bigint,\n" +
-                        "    FolloweeCount bigint,\n" +
-                        "    Password varchar,\n" +
-                        "    constraint pk_users primary key (AuthorId)\n" +
-                        ");",
-
-                "create table follow (\n" +
-                        "    FollowerId bigint,\n" +
-                        "    FolloweeId bigint,\n" +
-                        "    constraint pk_follow primary key (FollowerId, FolloweeId),\n" +
-                        "    constraint fk1_follow_users foreign key (FollowerId) references users(AuthorId),\n" +
-                        "    constraint fk2_follow_users foreign key (FolloweeId) references users(AuthorId)\n" +
-                        ");",
-
-                "create index follow_followee_index on follow(FolloweeId);",
-
-                "create or replace function follow_adder()\n" +
-                        "returns trigger as $$\n" +
-                        "begin\n" +
-                        "    update users set FollowerCount = FollowerCount + 1 where AuthorId = new.FolloweeId;\n" +
-                        "    update users set FolloweeCount = FolloweeCount + 1 where AuthorId = new.FollowerId;\n" +
-                        "    return new;\n" +
-                        "end;\n" +
-                        "$$ language plpgsql;",
-
-                "create or replace trigger follow_add_trigger\n" +
-                        "after insert on follow\n" +
-                        "for each row\n" +
-                        "execute function follow_adder();",
-
-                "create or replace function follow_delete()\n" +
-                        "returns trigger as $$\n" +
-                        "begin\n" +
-                        "    update users set FollowerCount = FollowerCount - 1 where AuthorId = old.FolloweeId;\n" +
-                        "    update users set FolloweeCount = FolloweeCount - 1 where AuthorId = old.FollowerId;\n" +
-                        "    return old;\n" +
-                        "end;\n" +
-                        "$$ language plpgsql;",
-
-                "create or replace trigger follow_delete_trigger\n" +
-                        "after delete on follow\n" +
-                        "for each row\n" +
-                        "execute function follow_delete();",
-
-                "create table recipes (\n" +
-                        "    RecipeId bigserial,\n" +
-                        "    Name varchar not null check ( Name != '' ),\n" +
-                        "    AuthorId bigint,\n" +
-                        "    CookTime varchar,\n" +
-                        "    PrepTime varchar,\n" +
-                        "    TotalTime varchar,\n" +
-                        "    DatePublished timestamp,\n" +
-                        "    Description varchar,\n" +
-                        "    RecipeCategory varchar,\n" +
-                        "    Calories float,\n" +
-                        "    FatContent float,\n" +
-                        "    SaturatedFatContent float,\n" +
-                        "    CholesterolContent float,\n" +
-                        "    SodiumContent float,\n" +
-                        "    CarbohydrateContent float,\n" +
-                        "    FiberContent float,\n" +
-                        "    SugarContent float,\n" +
-                        "    ProteinContent float,\n" +
-                        "    RecipeServings int,\n" +
-                        "    RecipeYield varchar,\n" +
-                        "    AggregatedRating float,\n" +
-                        "    ReviewCount int,\n" +
-                        "\n" +
-                        "    constraint pk_recipes primary key (RecipeId),\n" +
-                        "    constraint fk1_recipes_users foreign key (AuthorId) references users(AuthorId)\n" +
-                        ");",
-
-                "create index recipes_name_index on recipes(Name);",
-                "create index recipes_category_index on recipes(RecipeCategory);",
-                "create index recipes_rating_index on recipes(AggregatedRating desc);",
-                "create index recipes_date_index on recipes(DatePublished desc);",
-
-                "create table ingredient (\n" +
-                        "    RecipeId bigint,\n" +
-                        "    Ingredient varchar,\n" +
-                        "    constraint pk_ingredient primary key (RecipeId, Ingredient),\n" +
-                        "    constraint fk_ingredient_recipe foreign key (RecipeId) references recipes(RecipeId) on delete cascade \n" +
-                        ");\n",
-
-                "create index ingredient_index on ingredient(Ingredient);",
-
-                "create table reviews (\n" +
-                        "    ReviewId bigserial,\n" +
-                        "    RecipeId bigint,\n" +
-                        "    AuthorId bigint,\n" +
-                        "    Rating float,\n" +
-                        "    Review varchar,\n" +
-                        "    DateSubmitted timestamp,\n" +
-                        "    DateModified timestamp,\n" +
-                        "    constraint pk_reviews primary key (ReviewId),\n" +
-                        "    constraint fk1_reviews foreign key (RecipeId) references recipes on delete cascade ,\n" +
-                        "    constraint fk2_reviews foreign key (AuthorId) references users\n" +
-                        ");",
-
-                "create table like_review (\n" +
-                        "    AuthorId bigint,\n" +
-                        "    LikeReviewId bigint,\n" +
-                        "    constraint pk_like_review primary key (AuthorId, LikeReviewId),\n" +
-                        "    constraint fk1_like_review foreign key (AuthorId) references users(AuthorId),\n" +
-                        "    constraint fk2_like_review foreign key (LikeReviewId) references reviews(ReviewId) on delete cascade\n" +
-                        ");",
-
-                "create index like_review_index on like_review(LikeReviewId);"
-        };
-
-        for (String sql : createTableSQLs) {
-            jdbcTemplate.execute(sql);
+    /**
+     * Post-load phase: keys, foreign keys and indexes in bulk, the follow counters in one pass,
+     * and only then the row triggers, so none of them fire for imported rows.
+     */
+    private void finishDeferredSchema(boolean distinctEdges, ImportMetrics metrics) {
+        if (!distinctEdges) {
+            metrics.measureSchema("dedup", importSchema::dedupEdges);
         }
+        metrics.measureSchema("constraints", importSchema::createConstraints);
+        metrics.measureSchema("search_index", importSchema::createSearchIndexes);
+        metrics.measureSchema("follow_counts", importSchema::computeFollowCounts);
+        metrics.measureSchema("triggers", importSchema::createTriggers);
+        metrics.measureSchema("analyze", importSchema::analyze);
+    }
 
+    private ImportStrategy getImportStrategy(ImportMode mode) {
+        for (ImportStrategy strategy : importStrategies) {
+            if (strategy.mode() == mode) return strategy;
+        }
+        throw new IllegalArgumentException("Unsupported import mode: " + mode);
     }
 
 
@@ -492,6 +445,9 @@ public class DatabaseServiceImpl implements DatabaseService {
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
+        authService.invalidateAll();
+        recipeCache.invalidateAll();
+        recipeSearchIndex.clear();
     }
 
     @Override
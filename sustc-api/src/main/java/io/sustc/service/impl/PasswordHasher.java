@@ -0,0 +1,144 @@
+package io.sustc.service.impl;
+
+import io.sustc.config.AuthConfig;
+import io.sustc.dto.UserRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+/**
+ * Hashes and checks the values stored in {@code users.Password}.
+ * <p>
+ * With {@code sustc.auth.password-storage: pbkdf2} a password is stored as
+ * {@code pbkdf2$<iterations>$<salt>$<hash>} (PBKDF2-HMAC-SHA256, base64 salt and hash);
+ * with {@code plain} it is stored as given. {@link #matches} understands both forms whatever the setting,
+ * so a table written under the other setting keeps working.
+ * <p>
+ * Hashing is deliberately slow. {@link AuthService} caches successful checks so that it is paid once per
+ * login rather than per call, and imports hash on every core through {@link #hashAll} and {@link #hashing}.
+ * Both return copies of the records and leave the caller's ones untouched.
+ */
+@Component
+public class PasswordHasher {
+
+    private static final String PREFIX = "pbkdf2$";
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+
+    private static final int SALT_BYTES = 16;
+
+    private static final int HASH_BITS = 256;
+
+    /**
+     * Records hashed together by {@link #hashing}.
+     */
+    private static final int BATCH_RECORDS = 4096;
+
+    @Autowired
+    private AuthConfig authConfig;
+
+    private final SecureRandom random = new SecureRandom();
+
+    public boolean isHashing() {
+        return authConfig.getPasswordStorage() == AuthConfig.PasswordStorage.PBKDF2;
+    }
+
+    /**
+     * The value to store for {@code password}; {@code null} stays {@code null}.
+     */
+    public String hash(String password) {
+        if (password == null || !isHashing()) return password;
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        int iterations = authConfig.getHashIterations();
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + '$' + b64.encodeToString(salt) + '$'
+                + b64.encodeToString(pbkdf2(password, salt, iterations));
+    }
+
+    /**
+     * Whether {@code password} matches the {@code stored} value, compared in constant time.
+     */
+    public boolean matches(String password, String stored) {
+        if (password == null || stored == null) return false;
+        if (!stored.startsWith(PREFIX)) {
+            return MessageDigest.isEqual(
+                    password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) return false;
+        try {
+            int iterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            return MessageDigest.isEqual(expected, pbkdf2(password, salt, iterations));
+        } catch (IllegalArgumentException e) {
+            // 损坏的哈希值
+            return false;
+        }
+    }
+
+    /**
+     * Returns copies of {@code users} whose passwords are hashed, computed on the common fork-join pool.
+     * Without hashing, {@code users} itself is returned.
+     */
+    public List<UserRecord> hashAll(List<UserRecord> users) {
+        if (users == null || !isHashing()) return users;
+        return users.parallelStream()
+                .map(u -> u.toBuilder().password(hash(u.getPassword())).build())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns {@code users} with their passwords hashed, {@value #BATCH_RECORDS} records at a time
+     * in parallel as the iterator is consumed.
+     */
+    public Iterator<UserRecord> hashing(Iterator<UserRecord> users) {
+        if (!isHashing()) return users;
+        return new Iterator<>() {
+            private Iterator<UserRecord> batch = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                if (!batch.hasNext() && users.hasNext()) {
+                    List<UserRecord> next = new ArrayList<>(BATCH_RECORDS);
+                    while (next.size() < BATCH_RECORDS && users.hasNext()) {
+                        next.add(users.next());
+                    }
+                    batch = hashAll(next).iterator();
+                }
+                return batch.hasNext();
+            }
+
+            @Override
+            public UserRecord next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return batch.next();
+            }
+        };
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException(e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package io.sustc.service.impl;
+
+import io.sustc.config.CacheConfig;
+import io.sustc.dto.CacheStats;
+import io.sustc.dto.RecipeRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+/**
+ * Read-through cache of recipe details, bounded by {@code sustc.cache.recipe-size} with LRU eviction.
+ * <p>
+ * Writes that change a recipe, its author name or its rating call {@link #invalidate}, which evicts the
+ * entry at once and again when the surrounding transaction completes. Every invalidation also bumps a
+ * generation counter, and a load only enters the cache if no invalidation happened while it ran,
+ * so a reader cannot put back a row that a concurrent write has just replaced.
+ * <p>
+ * Callers get their own copy of a cached record and may modify it.
+ */
+@Component
+public class RecipeCache {
+
+    @Autowired
+    private CacheConfig cacheConfig;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Guarded by {@code this}, like {@link #entries}.
+     */
+    private long generation;
+
+    private final Map<Long, RecipeRecord> entries = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, RecipeRecord> eldest) {
+            if (size() > cacheConfig.getRecipeSize()) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * Returns the cached recipe, or loads it with {@code loader} and caches a non-null result.
+     */
+    public RecipeRecord get(long recipeId, LongFunction<RecipeRecord> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            RecipeRecord cached = entries.get(recipeId);
+            if (cached != null) {
+                hits.increment();
+                return copy(cached);
+            }
+            loadGeneration = generation;
+        }
+        misses.increment();
+
+        RecipeRecord loaded = loader.apply(recipeId);
+        if (loaded != null && cacheConfig.getRecipeSize() > 0) {
+            RecipeRecord entry = copy(loaded);
+            synchronized (this) {
+                if (generation == loadGeneration) {
+                    entries.put(recipeId, entry);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Evicts {@code recipeId}, now and when the current transaction completes.
+     */
+    public void invalidate(long recipeId) {
+        evict(recipeId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(recipeId);
+                }
+            });
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        invalidations.add(entries.size());
+        entries.clear();
+    }
+
+    public synchronized CacheStats stats() {
+        return CacheStats.builder()
+                .size(entries.size())
+                .capacity(cacheConfig.getRecipeSize())
+                .hits(hits.sum())
+                .misses(misses.sum())
+                .evictions(evictions.sum())
+                .invalidations(invalidations.sum())
+                .build();
+    }
+
+    private synchronized void evict(long recipeId) {
+        generation++;
+        if (entries.remove(recipeId) != null) {
+            invalidations.increment();
+        }
+    }
+
+    private static RecipeRecord copy(RecipeRecord recipe) {
+        String[] parts = recipe.getRecipeIngredientParts();
+        Timestamp published = recipe.getDatePublished();
+        return recipe.toBuilder()
+                .recipeIngredientParts(parts == null ? null : parts.clone())
+                .datePublished(published == null ? null : (Timestamp) published.clone())
+                .build();
+    }
+}
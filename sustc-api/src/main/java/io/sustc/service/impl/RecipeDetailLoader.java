@@ -0,0 +1,90 @@
+package io.sustc.service.impl;
+
+import io.sustc.dto.RecipeRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Loads a full {@link RecipeRecord} in one statement: the recipe row, its author's name and its
+ * ingredients ordered by {@code lower(Ingredient)}. Shared by {@link RecipeServiceImpl#getRecipeById}
+ * and the review writes that return the refreshed recipe.
+ */
+@Component
+public class RecipeDetailLoader {
+
+    /**
+     * Every column that {@link RecipeRecord} holds, without {@code SearchVector}.
+     */
+    public static final String RECIPE_COLUMNS =
+            "r.RecipeId, r.Name, r.AuthorId, r.CookTime, r.PrepTime, r.TotalTime, r.DatePublished, r.Description,\n" +
+            "       r.RecipeCategory, r.Calories, r.FatContent, r.SaturatedFatContent, r.CholesterolContent,\n" +
+            "       r.SodiumContent, r.CarbohydrateContent, r.FiberContent, r.SugarContent, r.ProteinContent,\n" +
+            "       r.RecipeServings, r.RecipeYield, r.AggregatedRating, r.ReviewCount";
+
+    private static final String SQL =
+            "select " + RECIPE_COLUMNS + ", u.AuthorName,\n" +
+            "       (select array_agg(i.Ingredient order by lower(i.Ingredient))\n" +
+            "        from ingredient i where i.RecipeId = r.RecipeId) as Ingredients\n" +
+            "from recipes r\n" +
+            "join users u on u.AuthorId = r.AuthorId\n" +
+            "where r.RecipeId = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Returns the recipe, or {@code null} if it or its author does not exist.
+     */
+    public RecipeRecord load(long recipeId) {
+        try {
+            return jdbcTemplate.queryForObject(SQL, (rs, i) -> map(rs), recipeId);
+        } catch (EmptyResultDataAccessException e) {
+            return null;
+        }
+    }
+
+    private static RecipeRecord map(ResultSet rs) throws SQLException {
+        return RecipeRecord.builder()
+                .RecipeId(rs.getLong("RecipeId"))
+                .name(rs.getString("Name"))
+                .authorId(rs.getLong("AuthorId"))
+                .authorName(rs.getString("AuthorName"))
+                .cookTime(rs.getString("CookTime"))
+                .prepTime(rs.getString("PrepTime"))
+                .totalTime(rs.getString("TotalTime"))
+                .datePublished(rs.getTimestamp("DatePublished"))
+                .description(rs.getString("Description"))
+                .recipeCategory(rs.getString("RecipeCategory"))
+                .recipeIngredientParts(ingredients(rs.getArray("Ingredients")))
+                .calories(rs.getFloat("Calories"))
+                .fatContent(rs.getFloat("FatContent"))
+                .saturatedFatContent(rs.getFloat("SaturatedFatContent"))
+                .cholesterolContent(rs.getFloat("CholesterolContent"))
+                .sodiumContent(rs.getFloat("SodiumContent"))
+                .carbohydrateContent(rs.getFloat("CarbohydrateContent"))
+                .fiberContent(rs.getFloat("FiberContent"))
+                .sugarContent(rs.getFloat("SugarContent"))
+                .proteinContent(rs.getFloat("ProteinContent"))
+                .recipeServings(rs.getInt("RecipeServings"))
+                .recipeYield(rs.getString("RecipeYield"))
+                .aggregatedRating(rs.getFloat("AggregatedRating"))
+                .reviewCount(rs.getInt("ReviewCount"))
+                .build();
+    }
+
+    private static String[] ingredients(Array array) throws SQLException {
+        // array_agg 在没有配料时返回 null
+        if (array == null) return new String[0];
+        try {
+            return (String[]) array.getArray();
+        } finally {
+            array.free();
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package io.sustc.service.impl;
 
+import io.sustc.config.SearchConfig;
 import io.sustc.dto.*;
 import io.sustc.service.RecipeService;
+import io.sustc.service.impl.search.RecipeSearchIndex;
+import io.sustc.service.impl.search.SearchBackend;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
@@ -30,28 +33,29 @@ public class RecipeServiceImpl implements RecipeService {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
-    public void checkAuth(AuthInfo auth) {
-        if (auth == null) {
-            throw new SecurityException();
-        }
-        String sql = "select exists (select 1 from users where AuthorId = ? and Is_Deleted = false)";
-        Boolean ok = jdbcTemplate.queryForObject(
-                sql,
-                Boolean.class,
-                auth.getAuthorId()
-        );
+    @Autowired
+    private AuthService authService;
 
-        if (Boolean.FALSE.equals(ok)) {
-            throw new SecurityException();
-        }
-        if(auth.getPassword() == null || !auth.getPassword().equals(jdbcTemplate.queryForObject(
-                "select password from users where authorid = ?",
-                String.class, auth.getAuthorId()
-        ))) throw new SecurityException();
-    }
+    @Autowired
+    private RecipeDetailLoader recipeDetailLoader;
+
+    @Autowired
+    private RecipeCache recipeCache;
+
+    @Autowired
+    private SearchConfig searchConfig;
+
+    @Autowired
+    private List<SearchBackend> searchBackends;
+
+    @Autowired
+    private RecipeSearchIndex recipeSearchIndex;
 
     @Override
     public String getNameFromID(long id) {
+        RecipeRecord recipe = id > 0 ? recipeCache.get(id, recipeDetailLoader::load) : null;
+        if (recipe != null) return recipe.getName();
+        // 不存在的食谱照旧由查询抛出异常
         return jdbcTemplate.queryForObject(
                 "select Name from recipes where RecipeId = ?",
                 String.class,
@@ -62,128 +66,7 @@ public class RecipeServiceImpl implements RecipeService {
     @Override
     public RecipeRecord getRecipeById(long recipeId) {
         if(recipeId <= 0) throw new IllegalArgumentException();
-        try {
-            RecipeRecord recipeRecord = jdbcTemplate.queryForObject(
-                    "select * from recipes where RecipeId = ?",
-                    (rs, i) -> RecipeRecord.builder()
-                            .RecipeId(rs.getLong("RecipeId"))
-                            .name(rs.getString("Name"))
-                            .authorId(rs.getLong("AuthorId"))
-                            .cookTime(rs.getString("CookTime"))
-                            .prepTime(rs.getString("PrepTime"))
-                            .totalTime(rs.getString("TotalTime"))
-                            .datePublished(rs.getTimestamp("DatePublished"))
-                            .description(rs.getString("Description"))
-                            .recipeCategory(rs.getString("RecipeCategory"))
-                            .calories(rs.getFloat("Calories"))
-                            .fatContent(rs.getFloat("FatContent"))
-                            .saturatedFatContent(rs.getFloat("SaturatedFatContent"))
-                            .cholesterolContent(rs.getFloat("CholesterolContent"))
-                            .sodiumContent(rs.getFloat("SodiumContent"))
-                            .carbohydrateContent(rs.getFloat("CarbohydrateContent"))
-                            .fiberContent(rs.getFloat("FiberContent"))
-                            .sugarContent(rs.getFloat("SugarContent"))
-                            .proteinContent(rs.getFloat("ProteinContent"))
-                            .recipeServings(rs.getInt("RecipeServings"))
-                            .recipeYield(rs.getString("RecipeYield"))
-                            .aggregatedRating(rs.getFloat("AggregatedRating"))
-                            .reviewCount(rs.getInt("ReviewCount"))
-                            .build(),
-                    recipeId
-            );
-
-            recipeRecord.setAuthorName(jdbcTemplate.queryForObject(
-                    "select AuthorName from users where AuthorId = ?",
-                    String.class,
-                    recipeRecord.getAuthorId()
-            ));
-
-            recipeRecord.setRecipeIngredientParts(jdbcTemplate.query(
-                    "select Ingredient from ingredient where RecipeId = ? ORDER BY LOWER(Ingredient) ASC",
-                    (rs, i) -> rs.getString("Ingredient"),
-                    recipeId
-            ).stream().toArray(String[]::new));
-
-            return recipeRecord;
-        }catch (EmptyResultDataAccessException e) {
-            return null;
-        }
-    }
-
-    private float getFloatOrZero(ResultSet rs, String col) {
-        try {
-            float v = rs.getFloat(col);
-            if (rs.wasNull()) return 0f;
-            return v;
-        } catch (SQLException e) {
-            return 0f;
-        }
-    }
-
-    private RecipeRecord mapRecipeRow(ResultSet rs, int rowNum) throws SQLException {
-        RecipeRecord r = new RecipeRecord();
-        r.setRecipeId(rs.getLong("RecipeId"));
-        r.setName(rs.getString("Name"));
-        r.setAuthorId(rs.getLong("AuthorId"));
-        try {
-            r.setAuthorName(rs.getString("AuthorName"));
-        } catch (SQLException ignored) {
-            // authorName may not be present in select
-        }
-        r.setCookTime(rs.getString("CookTime"));
-        r.setPrepTime(rs.getString("PrepTime"));
-        r.setTotalTime(rs.getString("TotalTime"));
-        Timestamp ts = rs.getTimestamp("DatePublished");
-        r.setDatePublished(ts);
-        r.setDescription(rs.getString("Description"));
-        r.setRecipeCategory(rs.getString("RecipeCategory"));
-
-        // Ingredient parts will be set later
-        r.setRecipeIngredientParts(null);
-
-        // Ratings and nutrition
-        r.setAggregatedRating(rs.getFloat("AggregatedRating"));
-        r.setReviewCount(rs.getInt("ReviewCount"));
-
-        // calories and nutritional values - some DBs return doubles; use ResultSet getters carefully
-        double calories = rs.getDouble("Calories");
-        if (rs.wasNull()) r.setCalories(0f);
-        else r.setCalories((float) calories);
-
-        r.setFatContent(getFloatOrZero(rs, "FatContent"));
-        r.setSaturatedFatContent(getFloatOrZero(rs, "SaturatedFatContent"));
-        r.setCholesterolContent(getFloatOrZero(rs, "CholesterolContent"));
-        r.setSodiumContent(getFloatOrZero(rs, "SodiumContent"));
-        r.setCarbohydrateContent(getFloatOrZero(rs, "CarbohydrateContent"));
-        r.setFiberContent(getFloatOrZero(rs, "FiberContent"));
-        r.setSugarContent(getFloatOrZero(rs, "SugarContent"));
-        r.setProteinContent(getFloatOrZero(rs, "ProteinContent"));
-
-        // servings / yield - note types mismatch in DB vs DTO: handle gracefully
-        try {
-            r.setRecipeServings(rs.getInt("RecipeServings"));
-        } catch (SQLException e) {
-            // in some schemas it may be varchar; try alternate
-            try {
-                String s = rs.getString("RecipeServings");
-                r.setRecipeServings(s == null ? 0 : Integer.parseInt(s));
-            } catch (Exception ex) {
-                r.setRecipeServings(0);
-            }
-        }
-        r.setRecipeYield(rs.getString("RecipeYield"));
-
-        return r;
-    }
-
-    private String[] loadIngredientParts(long recipeId) {
-        List<String> parts = jdbcTemplate.query(
-                "SELECT Ingredient FROM ingredient WHERE RecipeId = ? ORDER BY LOWER(Ingredient) ASC",
-                (rs, rowNum) -> rs.getString("Ingredient"),
-                recipeId
-        );
-        if (parts == null || parts.isEmpty()) return null;
-        return parts.toArray(new String[0]);
+        return recipeCache.get(recipeId, recipeDetailLoader::load);
     }
 
     @Override
@@ -191,85 +74,21 @@ public class RecipeServiceImpl implements RecipeService {
                                                   Integer page, Integer size, String sort) {
         if (page == null || page < 1) throw new IllegalArgumentException("page must be >= 1");
         if (size == null || size <= 0) throw new IllegalArgumentException("size must be > 0");
+        return searchBackend().search(keyword, category, minRating, page, size, sort);
+    }
 
-        StringBuilder where = new StringBuilder(" WHERE 1=1 ");
-        List<Object> params = new ArrayList<>();
-
-        if (keyword != null && !keyword.trim().isEmpty()) {
-            where.append(" AND (LOWER(r.Name) LIKE ? OR LOWER(r.Description) LIKE ?) ");
-            String kw = "%" + keyword.trim().toLowerCase() + "%";
-            params.add(kw);
-            params.add(kw);
-        }
-        if (category != null && !category.trim().isEmpty()) {
-            where.append(" AND r.RecipeCategory = ? ");
-            params.add(category);
-        }
-        if (minRating != null) {
-            where.append(" AND r.AggregatedRating >= ? ");
-            params.add(minRating);
-        }
-
-        String orderBy = " ORDER BY r.RecipeId ASC ";
-        if (sort != null) {
-            switch (sort) {
-                case "rating_desc":
-                    orderBy = " ORDER BY r.AggregatedRating DESC NULLS LAST, r.RecipeId DESC ";
-                    break;
-                case "date_desc":
-                    orderBy = " ORDER BY r.DatePublished DESC NULLS LAST, r.RecipeId DESC ";
-                    break;
-                case "calories_asc":
-                    orderBy = " ORDER BY r.Calories ASC NULLS LAST, r.RecipeId DESC ";
-                    break;
-                default:
-                    // keep default
-                    break;
-            }
-        }
-
-        int offset = (page - 1) * size;
-        String sql = "SELECT r.*, u.AuthorName FROM recipes r LEFT JOIN users u ON r.AuthorId = u.AuthorId "
-                + where.toString()
-                + orderBy
-                + " LIMIT ? OFFSET ?";
-
-        // add limit/offset params
-        params.add(size);
-        params.add(offset);
-
-        List<RecipeRecord> items = jdbcTemplate.query(sql, params.toArray(), (rs, rowNum) -> mapRecipeRow(rs, rowNum));
-
-        // load ingredient parts for each recipe (N+1 queries). For correctness and to ensure order.
-        for (RecipeRecord rec : items) {
-            rec.setRecipeIngredientParts(loadIngredientParts(rec.getRecipeId()));
-        }
-
-        // total count
-        String countSql = "SELECT COUNT(*) FROM recipes r " + where.toString();
-        // params for count are same as earlier without limit/offset
-        Object[] countParams = params.subList(0, Math.max(0, params.size() - 2)).toArray();
-        Long total = jdbcTemplate.queryForObject(countSql, countParams, Long.class);
-        if (total == null) total = 0L;
-
-        PageResult<RecipeRecord> result = PageResult.<RecipeRecord>builder()
-                .items(items)
-                .page(page)
-                .size(size)
-                .total(total)
-                .build();
-
-        for(RecipeRecord r : result.getItems()) {
-
-        }
-
-        return result;
+    private SearchBackend searchBackend() {
+        SearchConfig.Backend type = searchConfig.getBackend();
+        return searchBackends.stream()
+                .filter(b -> b.type() == type)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No search backend for " + type));
     }
 
     @Override
     @Transactional
     public long createRecipe(RecipeRecord dto, AuthInfo auth) {
-        checkAuth(auth);
+        authService.checkAuth(auth);
         if(dto == null) throw new IllegalArgumentException();
         try {
             long id = jdbcTemplate.queryForObject(
@@ -300,6 +119,8 @@ public class RecipeServiceImpl implements RecipeService {
                     dto.getRecipeServings(),
                     dto.getRecipeYield()
             ).longValue();
+            recipeCache.invalidate(id);
+            recipeSearchIndex.refresh(id);
             String[] parts = dto.getRecipeIngredientParts();
             if (parts == null) return id;
             jdbcTemplate.batchUpdate(
@@ -327,7 +148,7 @@ public class RecipeServiceImpl implements RecipeService {
     @Override
     @Transactional
     public void deleteRecipe(long recipeId, AuthInfo auth) {
-        checkAuth(auth);
+        authService.checkAuth(auth);
         Long authorId = null;
         try {
             authorId = jdbcTemplate.queryForObject(
@@ -343,6 +164,8 @@ public class RecipeServiceImpl implements RecipeService {
                 "delete from recipes where RecipeId = ?",
                 recipeId
         );
+        recipeCache.invalidate(recipeId);
+        recipeSearchIndex.refresh(recipeId);
     }
 
     private long getRecipeAuthorIdOrThrow(long recipeId) {
@@ -365,7 +188,7 @@ public class RecipeServiceImpl implements RecipeService {
     @Override
     @Transactional
     public void updateTimes(AuthInfo auth, long recipeId, String cookTimeIso, String prepTimeIso) {
-        checkAuth(auth);
+        authService.checkAuth(auth);
         long ownerId = getRecipeAuthorIdOrThrow(recipeId);
         if (ownerId != auth.getAuthorId()) {
             throw new SecurityException();
@@ -418,6 +241,7 @@ public class RecipeServiceImpl implements RecipeService {
         // Update fields
         jdbcTemplate.update("UPDATE recipes SET CookTime = ?, PrepTime = ?, TotalTime = ? WHERE RecipeId = ?",
                 cookStr, prepStr, totalStr, recipeId);
+        recipeCache.invalidate(recipeId);
     }
 
     @Override
@@ -458,5 +282,9 @@ public class RecipeServiceImpl implements RecipeService {
          return res;
     }
 
+    @Override
+    public CacheStats getCacheStats() {
+        return recipeCache.stats();
+    }
 
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import io.sustc.dto.PageResult;
 import io.sustc.dto.RecipeRecord;
 import io.sustc.dto.ReviewRecord;
 import io.sustc.service.ReviewService;
+import io.sustc.service.impl.search.RecipeSearchIndex;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.EmptyResultDataAccessException;
@@ -28,31 +29,23 @@ public class ReviewServiceImpl implements ReviewService {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
-    public void checkAuth(AuthInfo auth) {
-        if (auth == null) {
-            throw new SecurityException();
-        }
-        String sql = "select exists (select 1 from users where AuthorId = ? and Is_Deleted = false)";
-        Boolean ok = jdbcTemplate.queryForObject(
-                sql,
-                Boolean.class,
-                auth.getAuthorId()
-        );
+    @Autowired
+    private AuthService authService;
 
-        if (Boolean.FALSE.equals(ok)) {
-            throw new SecurityException();
-        }
-        if(auth.getPassword() == null || !auth.getPassword().equals(jdbcTemplate.queryForObject(
-                "select password from users where authorid = ?",
-                String.class, auth.getAuthorId()
-        ))) throw new SecurityException();
-    }
+    @Autowired
+    private RecipeDetailLoader recipeDetailLoader;
+
+    @Autowired
+    private RecipeCache recipeCache;
+
+    @Autowired
+    private RecipeSearchIndex recipeSearchIndex;
 
 
     @Override
     @Transactional
     public long addReview(AuthInfo auth, long recipeId, int rating, String review) {
-        checkAuth(auth);
+        authService.checkAuth(auth);
         if(Boolean.FALSE.equals(jdbcTemplate.queryForObject(
                 "select exists (select 1 from recipes where RecipeId = ?)",
                 Boolean.class,
@@ -77,7 +70,7 @@ public class ReviewServiceImpl implements ReviewService {
     @Override
     @Transactional
     public void editReview(AuthInfo auth, long recipeId, long reviewId, int rating, String review) {
-        checkAuth(auth);
+        authService.checkAuth(auth);
         try {
             if(jdbcTemplate.queryForObject(
                     "select AuthorId from reviews where ReviewId = ?",
@@ -116,7 +109,7 @@ public class ReviewServiceImpl implements ReviewService {
     @Override
     @Transactional
     public void deleteReview(AuthInfo auth, long recipeId, long reviewId) {
-        checkAuth(auth);
+        authService.checkAuth(auth);
         try {
             if(jdbcTemplate.queryForObject(
                     "select AuthorId from reviews where ReviewId = ?",
@@ -146,7 +139,7 @@ public class ReviewServiceImpl implements ReviewService {
     @Override
     @Transactional
     public long likeReview(AuthInfo auth, long reviewId) {
-        checkAuth(auth);
+        authService.checkAuth(auth);
         if(Boolean.FALSE.equals(jdbcTemplate.queryForObject(
                 "select exists (select 1 from reviews where ReviewId = ?)",
                 Boolean.class,
@@ -173,7 +166,7 @@ public class ReviewServiceImpl implements ReviewService {
     @Override
     @Transactional
     public long unlikeReview(AuthInfo auth, long reviewId) {
-        checkAuth(auth);
+        authService.checkAuth(auth);
         if(Boolean.FALSE.equals(jdbcTemplate.queryForObject(
                 "select exists (select 1 from reviews where ReviewId = ?)",
                 Boolean.class,
@@ -275,52 +268,7 @@ public class ReviewServiceImpl implements ReviewService {
 
     private RecipeRecord getRecipeById(long recipeId) {
         if(recipeId <= 0) throw new IllegalArgumentException();
-        try {
-            RecipeRecord recipeRecord = jdbcTemplate.queryForObject(
-                    "select * from recipes where RecipeId = ?",
-                    (rs, i) -> RecipeRecord.builder()
-                            .RecipeId(rs.getLong("RecipeId"))
-                            .name(rs.getString("Name"))
-                            .authorId(rs.getLong("AuthorId"))
-                            .cookTime(rs.getString("CookTime"))
-                            .prepTime(rs.getString("PrepTime"))
-                            .totalTime(rs.getString("TotalTime"))
-                            .datePublished(rs.getTimestamp("DatePublished"))
-                            .description(rs.getString("Description"))
-                            .recipeCategory(rs.getString("RecipeCategory"))
-                            .calories(rs.getFloat("Calories"))
-                            .fatContent(rs.getFloat("FatContent"))
-                            .saturatedFatContent(rs.getFloat("SaturatedFatContent"))
-                            .cholesterolContent(rs.getFloat("CholesterolContent"))
-                            .sodiumContent(rs.getFloat("SodiumContent"))
-                            .carbohydrateContent(rs.getFloat("CarbohydrateContent"))
-                            .fiberContent(rs.getFloat("FiberContent"))
-                            .sugarContent(rs.getFloat("SugarContent"))
-                            .proteinContent(rs.getFloat("ProteinContent"))
-                            .recipeServings(rs.getInt("RecipeServings"))
-                            .recipeYield(rs.getString("RecipeYield"))
-                            .aggregatedRating(rs.getFloat("AggregatedRating"))
-                            .reviewCount(rs.getInt("ReviewCount"))
-                            .build(),
-                    recipeId
-            );
-
-            recipeRecord.setAuthorName(jdbcTemplate.queryForObject(
-                    "select AuthorName from users where AuthorId = ?",
-                    String.class,
-                    recipeRecord.getAuthorId()
-            ));
-
-            recipeRecord.setRecipeIngredientParts(jdbcTemplate.query(
-                    "select Ingredient from ingredient where RecipeId = ? ORDER BY LOWER(Ingredient) ASC",
-                    (rs, i) -> rs.getString("Ingredient"),
-                    recipeId
-            ).stream().toArray(String[]::new));
-
-            return recipeRecord;
-        }catch (EmptyResultDataAccessException e) {
-            return null;
-        }
+        return recipeDetailLoader.load(recipeId);
     }
     @Override
     @Transactional
@@ -337,6 +285,10 @@ public class ReviewServiceImpl implements ReviewService {
                 "update recipes set aggregatedrating = ?, reviewcount = ? where recipeid = ?",
                 NewAggregatedRating, NewReviewCount, recipeId
         );
+        // addReview、editReview、deleteReview 都经过这里，评分变化后使缓存失效
+        recipeCache.invalidate(recipeId);
+        recipeSearchIndex.refresh(recipeId);
+        // 读取本事务内刚更新的行，不经过缓存
         return getRecipeById(recipeId);
     }
 
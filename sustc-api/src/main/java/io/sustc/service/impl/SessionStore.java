@@ -0,0 +1,128 @@
+package io.sustc.service.impl;
+
+import io.sustc.config.AuthConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory session tokens issued by {@link UserServiceImpl#issueToken}.
+ * <p>
+ * A token is 32 random bytes, URL-safe base64 encoded, and maps to the user it was issued to until
+ * {@code sustc.auth.session-ttl} passes or the user's sessions are revoked. Resolving one is a hash lookup
+ * and never touches the database. Expired sessions are removed when they are next used, and by a sweep
+ * that runs every {@value #SWEEP_INTERVAL} issued tokens.
+ */
+@Component
+public class SessionStore {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private static final int SWEEP_INTERVAL = 1024;
+
+    @Autowired
+    private AuthConfig authConfig;
+
+    private final SecureRandom random = new SecureRandom();
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Guarded by {@code this}, like every change to {@link #sessions}; lookups do not lock.
+     */
+    private final Map<Long, Set<String>> tokensByUser = new HashMap<>();
+
+    private final AtomicLong issued = new AtomicLong();
+
+    public String issue(long authorId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        long expiresAt = System.nanoTime() + authConfig.getSessionTtl().toNanos();
+        synchronized (this) {
+            tokensByUser.computeIfAbsent(authorId, id -> new HashSet<>()).add(token);
+            sessions.put(token, new Session(authorId, expiresAt));
+        }
+
+        if (issued.incrementAndGet() % SWEEP_INTERVAL == 0) {
+            sweep();
+        }
+        return token;
+    }
+
+    /**
+     * Returns the user {@code token} was issued to, or {@code -1} if it is unknown, expired or revoked.
+     */
+    public long resolve(String token) {
+        Session session = sessions.get(token);
+        if (session == null) {
+            return -1;
+        }
+        if (session.expiresAt - System.nanoTime() <= 0) {
+            remove(token, session);
+            return -1;
+        }
+        return session.authorId;
+    }
+
+    public void revoke(String token) {
+        Session session = sessions.get(token);
+        if (session != null) {
+            remove(token, session);
+        }
+    }
+
+    /**
+     * Revokes every session of {@code authorId}.
+     */
+    public synchronized void revokeAll(long authorId) {
+        Set<String> tokens = tokensByUser.remove(authorId);
+        if (tokens != null) {
+            tokens.forEach(sessions::remove);
+        }
+    }
+
+    public synchronized void clear() {
+        sessions.clear();
+        tokensByUser.clear();
+    }
+
+    private void sweep() {
+        long now = System.nanoTime();
+        sessions.forEach((token, session) -> {
+            if (session.expiresAt - now <= 0) {
+                remove(token, session);
+            }
+        });
+    }
+
+    private synchronized void remove(String token, Session session) {
+        if (sessions.remove(token, session)) {
+            Set<String> tokens = tokensByUser.get(session.authorId);
+            if (tokens != null && tokens.remove(token) && tokens.isEmpty()) {
+                tokensByUser.remove(session.authorId);
+            }
+        }
+    }
+
+    private static class Session {
+
+        private final long authorId;
+
+        private final long expiresAt;
+
+        Session(long authorId, long expiresAt) {
+            this.authorId = authorId;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -5,7 +5,6 @@ import io.sustc.service.UserService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -24,6 +23,15 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private SessionStore sessionStore;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
     @Override
     @Transactional
     public long register(RegisterUserReq req) {
@@ -36,7 +44,7 @@ public class UserServiceImpl implements UserService {
                     req.getName(),
                     getGender(req.getGender().name()),
                     LocalDate.from(LocalDate.now()).getYear() - LocalDate.parse(req.getBirthday()).getYear(),
-                    req.getPassword()
+                    passwordHasher.hash(req.getPassword())
             ).longValue();
             return id;
         } catch (DataIntegrityViolationException e) {
@@ -47,45 +55,24 @@ public class UserServiceImpl implements UserService {
     @Override
     public long login(AuthInfo auth) {
         if(auth == null || auth.getPassword() == null || auth.getPassword().isEmpty()) return -1;
-        try {
-            String sql = "select Password from users where AuthorId = ? and Is_Deleted = false";
-            String pwd = jdbcTemplate.queryForObject(
-                    sql,
-                    String.class,
-                    auth.getAuthorId()
-            );
-            if(pwd != null && pwd.equals(auth.getPassword())) return auth.getAuthorId();
-            else return -1;
-
-        }catch (EmptyResultDataAccessException e) {
-            return -1;
-        }
+        return authService.verify(auth.getAuthorId(), auth.getPassword()) ? auth.getAuthorId() : -1;
     }
 
-    public void checkAuth(AuthInfo auth) {
-        if (auth == null) {
-            throw new SecurityException("auth error");
-        }
-        String sql = "select exists (select 1 from users where AuthorId = ? and Is_Deleted = false)";
-        Boolean ok = jdbcTemplate.queryForObject(
-                sql,
-                Boolean.class,
-                auth.getAuthorId()
-        );
+    @Override
+    public String issueToken(AuthInfo auth) {
+        if(auth == null || auth.getPassword() == null || auth.getPassword().isEmpty()) return null;
+        return authService.issueToken(auth.getAuthorId(), auth.getPassword());
+    }
 
-        if (Boolean.FALSE.equals(ok)) {
-            throw new SecurityException("auth error");
-        }
-        if(auth.getPassword() == null || !auth.getPassword().equals(jdbcTemplate.queryForObject(
-                "select password from users where authorid = ?",
-                String.class, auth.getAuthorId()
-        ))) throw new SecurityException();
+    @Override
+    public void revokeToken(String token) {
+        if (token != null) sessionStore.revoke(token);
     }
 
     @Override
     @Transactional
     public boolean deleteAccount(AuthInfo auth, long userId) {
-        checkAuth(auth);
+        authService.checkAuth(auth);
 
         if (auth.getAuthorId() != userId) {
             throw new SecurityException();
@@ -107,6 +94,7 @@ public class UserServiceImpl implements UserService {
         if (updated == 0) {
             return false;
         }
+        authService.invalidate(userId);
 
         jdbcTemplate.update(
                 "delete from follow where FollowerId = ? or FolloweeId = ?",
@@ -128,7 +116,7 @@ public class UserServiceImpl implements UserService {
     @Override
     @Transactional
     public boolean follow(AuthInfo auth, long followeeId) {
-        checkAuth(auth);
+        authService.checkAuth(auth);
         if(auth.getAuthorId() == followeeId) throw new SecurityException();
         Boolean check_followee = jdbcTemplate.queryForObject(
                 "select exists (select 1 from users where AuthorId = ? and Is_Deleted = false)",
@@ -212,7 +200,7 @@ public class UserServiceImpl implements UserService {
     @Override
     @Transactional
     public void updateProfile(AuthInfo auth, String gender, Integer age) {
-        checkAuth(auth);
+        authService.checkAuth(auth);
         gender = getGender(gender);
         if(gender != null) {
             if(gender.equals("Male") || gender.equals("Female")) {
@@ -232,7 +220,7 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public PageResult<FeedItem> feed(AuthInfo auth, int page, int size, String category) {
-        checkAuth(auth);
+        authService.checkAuth(auth);
         page = Math.max(page, 1);
         size = Math.min(Math.max(size, 1), 200);
         int offset = (page - 1) * size;
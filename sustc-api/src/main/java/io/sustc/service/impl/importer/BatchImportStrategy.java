@@ -0,0 +1,158 @@
+package io.sustc.service.impl.importer;
+
+import io.sustc.dto.ImportMode;
+import io.sustc.dto.RecipeRecord;
+import io.sustc.dto.ReviewRecord;
+import io.sustc.dto.UserRecord;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * The original import path: one bound {@code INSERT} per row, sent in JDBC batches.
+ */
+@Component
+public class BatchImportStrategy implements ImportStrategy {
+
+    private static final int BATCH_SIZE = 4096;
+
+    @Override
+    public ImportMode mode() {
+        return ImportMode.BATCH;
+    }
+
+    @Override
+    public boolean distinctEdges() {
+        return true;
+    }
+
+    @Override
+    public long writeUsers(Connection conn, Iterable<UserRecord> users) throws SQLException {
+        final String userSql = "INSERT INTO users (AuthorName, Gender, Age, followercount, followeecount, Password, Is_Deleted) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(userSql)) {
+            long rows = 0;
+            for (UserRecord u : users) {
+                ps.setString(1, u.getAuthorName());
+                ps.setString(2, ImportRecords.normalizeGender(u.getGender()));
+                ps.setInt(3, u.getAge());
+                ps.setLong(4, u.getFollowers());
+                ps.setLong(5, u.getFollowing());
+                ps.setString(6, u.getPassword());
+                ps.setBoolean(7, u.isDeleted());
+                rows = addBatch(ps, rows);
+            }
+            return flush(ps, rows);
+        }
+    }
+
+    @Override
+    public long writeRecipes(Connection conn, Iterable<RecipeRecord> recipes) throws SQLException {
+        final String recipeSql = "INSERT INTO recipes (Name, AuthorId, CookTime, PrepTime, TotalTime, DatePublished, Description, RecipeCategory, Calories, FatContent, SaturatedFatContent, CholesterolContent, SodiumContent, CarbohydrateContent, FiberContent, SugarContent, ProteinContent, RecipeServings, RecipeYield, aggregatedrating, reviewcount) " +
+                "VALUES ( ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(recipeSql)) {
+            long rows = 0;
+            for (RecipeRecord r : recipes) {
+                ps.setString(1, r.getName());
+                ps.setLong(2, r.getAuthorId());
+                ps.setString(3, r.getCookTime());
+                ps.setString(4, r.getPrepTime());
+                ps.setString(5, r.getTotalTime());
+                ps.setTimestamp(6, r.getDatePublished());
+                ps.setString(7, r.getDescription());
+                ps.setString(8, r.getRecipeCategory());
+                ps.setFloat(9, r.getCalories());
+                ps.setFloat(10, r.getFatContent());
+                ps.setFloat(11, r.getSaturatedFatContent());
+                ps.setFloat(12, r.getCholesterolContent());
+                ps.setFloat(13, r.getSodiumContent());
+                ps.setFloat(14, r.getCarbohydrateContent());
+                ps.setFloat(15, r.getFiberContent());
+                ps.setFloat(16, r.getSugarContent());
+                ps.setFloat(17, r.getProteinContent());
+                ps.setInt(18, r.getRecipeServings());
+                ps.setString(19, r.getRecipeYield());
+                ps.setFloat(20, r.getAggregatedRating());
+                ps.setInt(21, r.getReviewCount());
+                rows = addBatch(ps, rows);
+            }
+            return flush(ps, rows);
+        }
+    }
+
+    @Override
+    public long writeIngredients(Connection conn, Iterable<RecipeRecord> recipes) throws SQLException {
+        // Use ON CONFLICT DO NOTHING to tolerate duplicates if table has PK constraint
+        final String ingrSql = "INSERT INTO ingredient (RecipeId, Ingredient) VALUES (?, ?) ON CONFLICT DO NOTHING";
+        try (PreparedStatement ps = conn.prepareStatement(ingrSql)) {
+            long rows = 0;
+            for (IngredientBatch batch : ImportRecords.prepareIngredients(recipes)) {
+                for (int i = 0; i < batch.size(); i++) {
+                    ps.setLong(1, batch.recipeId(i));
+                    ps.setString(2, batch.ingredient(i));
+                    rows = addBatch(ps, rows);
+                }
+            }
+            return flush(ps, rows);
+        }
+    }
+
+    @Override
+    public long writeReviews(Connection conn, Iterable<ReviewRecord> reviews) throws SQLException {
+        final String reviewSql = "INSERT INTO reviews (RecipeId, AuthorId, Rating, Review, DateSubmitted, DateModified) VALUES (?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(reviewSql)) {
+            long rows = 0;
+            for (ReviewRecord rv : reviews) {
+                ps.setLong(1, rv.getRecipeId());
+                ps.setLong(2, rv.getAuthorId());
+                ps.setFloat(3, rv.getRating());
+                ps.setString(4, rv.getReview());
+                ps.setTimestamp(5, rv.getDateSubmitted());
+                ps.setTimestamp(6, rv.getDateModified());
+                rows = addBatch(ps, rows);
+            }
+            return flush(ps, rows);
+        }
+    }
+
+    @Override
+    public long writeLikePairs(Connection conn, Iterable<LongPairBuffer> likes) throws SQLException {
+        return writePairs(conn, "INSERT INTO like_review (AuthorId, LikeReviewId) VALUES (?, ?)", likes);
+    }
+
+    @Override
+    public long writeFollowPairs(Connection conn, Iterable<LongPairBuffer> follows) throws SQLException {
+        return writePairs(conn, "INSERT INTO follow (FollowerId, FolloweeId) VALUES (?, ?)", follows);
+    }
+
+    private static long writePairs(Connection conn, String sql, Iterable<LongPairBuffer> batches) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            long rows = 0;
+            for (LongPairBuffer pairs : batches) {
+                for (int i = 0; i < pairs.size(); i++) {
+                    ps.setLong(1, pairs.first(i));
+                    ps.setLong(2, pairs.second(i));
+                    rows = addBatch(ps, rows);
+                }
+            }
+            return flush(ps, rows);
+        }
+    }
+
+    private static long addBatch(PreparedStatement ps, long rows) throws SQLException {
+        ps.addBatch();
+        if (++rows % BATCH_SIZE == 0) {
+            ps.executeBatch();
+        }
+        return rows;
+    }
+
+    private static long flush(PreparedStatement ps, long rows) throws SQLException {
+        if (rows % BATCH_SIZE != 0) {
+            ps.executeBatch();
+        }
+        return rows;
+    }
+}
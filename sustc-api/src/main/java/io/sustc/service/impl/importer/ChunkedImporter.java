@@ -0,0 +1,158 @@
+package io.sustc.service.impl.importer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs an import plan one chunk per transaction and remembers how far it got.
+ * <p>
+ * Progress lives in the {@code import_checkpoint} table, one row per {@link ImportTable}, and is
+ * updated in the same transaction as the chunk it counts, so a chunk is either written and counted
+ * or neither. Running the same plan again skips every committed chunk. The table is dropped by
+ * {@link #complete()} once the import has finished, its presence is what marks an import as resumable.
+ */
+@Component
+@Slf4j
+public class ChunkedImporter {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Whether an unfinished chunked import left its checkpoints behind.
+     */
+    public boolean isResumable() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "select to_regclass('import_checkpoint') is not null", Boolean.class));
+    }
+
+    /**
+     * Creates the checkpoint table with no chunk done yet.
+     */
+    public void start(int chunkSize, boolean deferred) {
+        jdbcTemplate.execute("create table import_checkpoint (\n" +
+                "    TableName varchar primary key,\n" +
+                "    ChunkSize int not null,\n" +
+                "    Deferred boolean not null,\n" +
+                "    ChunksDone int not null default 0,\n" +
+                "    RowsDone bigint not null default 0,\n" +
+                "    UpdatedAt timestamp not null default now()\n" +
+                ");");
+        for (ImportTable table : ImportTable.values()) {
+            jdbcTemplate.update("insert into import_checkpoint (TableName, ChunkSize, Deferred) values (?, ?, ?)",
+                    table.name(), chunkSize, deferred);
+        }
+    }
+
+    /**
+     * Refuses to resume with settings that would chunk or lay out the tables differently from the first run.
+     */
+    public void checkResumable(int chunkSize, boolean deferred) {
+        Map<String, Object> saved = jdbcTemplate.queryForMap(
+                "select ChunkSize, Deferred from import_checkpoint limit 1");
+        if (((Number) saved.get("ChunkSize")).intValue() != chunkSize || (Boolean) saved.get("Deferred") != deferred) {
+            throw new IllegalStateException(String.format(
+                    "Unfinished import used chunkSize=%s, deferConstraints=%s; resume it with the same options or drop the database",
+                    saved.get("ChunkSize"), saved.get("Deferred")));
+        }
+    }
+
+    /**
+     * Loads every chunk not committed yet, tables in dependency order.
+     *
+     * @param plan the chunks of each table, in the same order on every run
+     * @return the number of rows written into each table by this run
+     */
+    public Map<ImportTable, Long> run(Map<ImportTable, List<TableLoad>> plan) {
+        Map<ImportTable, Long> rows = new EnumMap<>(ImportTable.class);
+        try {
+            for (ImportTable table : ImportTable.values()) {
+                List<TableLoad> chunks = plan.getOrDefault(table, List.of());
+                int done = jdbcTemplate.queryForObject(
+                        "select ChunksDone from import_checkpoint where TableName = ?", Integer.class, table.name());
+                if (done > 0) {
+                    log.info("Resuming {} after chunk {}/{}", table, done, chunks.size());
+                }
+                long written = 0;
+                for (int i = done; i < chunks.size(); i++) {
+                    written += runChunk(table, i, i == done, chunks.get(i));
+                }
+                rows.put(table, written);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return rows;
+    }
+
+    /**
+     * Drops the checkpoints, call in the transaction that finishes the import.
+     */
+    public void complete() {
+        jdbcTemplate.execute("drop table import_checkpoint;");
+    }
+
+    private long runChunk(ImportTable table, int index, boolean first, TableLoad load) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // A previous run may have failed in the middle of this table
+                if (first) {
+                    resetSerial(conn, table);
+                }
+                long rows = load.load(conn);
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "update import_checkpoint set ChunksDone = ?, RowsDone = RowsDone + ?, UpdatedAt = now() where TableName = ?")) {
+                    ps.setInt(1, index + 1);
+                    ps.setLong(2, rows);
+                    ps.setString(3, table.name());
+                    ps.executeUpdate();
+                }
+                conn.commit();
+                return rows;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                log.error("Chunk {} of {} failed, run the import again to resume from it", index, table, e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Sequences are not rolled back with a failed chunk, so move them back behind the last committed row
+     * to keep the generated ids equal to the record ids.
+     */
+    private static void resetSerial(Connection conn, ImportTable table) throws SQLException {
+        String sql;
+        switch (table) {
+            case USERS:
+                sql = "select setval(pg_get_serial_sequence('users', 'authorid'), coalesce(max(AuthorId), 0) + 1, false) from users";
+                break;
+            case RECIPES:
+                sql = "select setval(pg_get_serial_sequence('recipes', 'recipeid'), coalesce(max(RecipeId), 0) + 1, false) from recipes";
+                break;
+            case REVIEWS:
+                sql = "select setval(pg_get_serial_sequence('reviews', 'reviewid'), coalesce(max(ReviewId), 0) + 1, false) from reviews";
+                break;
+            default:
+                return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package io.sustc.service.impl.importer;
+
+import io.sustc.dto.ImportMode;
+import io.sustc.dto.RecipeRecord;
+import io.sustc.dto.ReviewRecord;
+import io.sustc.dto.UserRecord;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Streams every table through {@code COPY ... FROM STDIN}.
+ * <p>
+ * COPY has no {@code ON CONFLICT}; the edge pairs arrive already deduplicated
+ * by {@link LongPairBuffer#sortAndDedup()}, so they are copied straight into their tables.
+ */
+@Component
+public class CopyImportStrategy implements ImportStrategy {
+
+    @Override
+    public ImportMode mode() {
+        return ImportMode.COPY;
+    }
+
+    @Override
+    public boolean distinctEdges() {
+        return true;
+    }
+
+    @Override
+    public long writeUsers(Connection conn, Iterable<UserRecord> users) throws SQLException {
+        try (CopyRowWriter w = CopyRowWriter.open(conn,
+                "COPY users (AuthorName, Gender, Age, FollowerCount, FolloweeCount, Password, Is_Deleted) FROM STDIN")) {
+            for (UserRecord u : users) {
+                w.text(u.getAuthorName())
+                        .text(ImportRecords.normalizeGender(u.getGender()))
+                        .int32(u.getAge())
+                        .int64(u.getFollowers())
+                        .int64(u.getFollowing())
+                        .text(u.getPassword())
+                        .bool(u.isDeleted())
+                        .endRow();
+            }
+            return w.finish();
+        }
+    }
+
+    @Override
+    public long writeRecipes(Connection conn, Iterable<RecipeRecord> recipes) throws SQLException {
+        try (CopyRowWriter w = CopyRowWriter.open(conn,
+                "COPY recipes (Name, AuthorId, CookTime, PrepTime, TotalTime, DatePublished, Description, RecipeCategory, " +
+                        "Calories, FatContent, SaturatedFatContent, CholesterolContent, SodiumContent, CarbohydrateContent, " +
+                        "FiberContent, SugarContent, ProteinContent, RecipeServings, RecipeYield, AggregatedRating, ReviewCount) FROM STDIN")) {
+            for (RecipeRecord r : recipes) {
+                w.text(r.getName())
+                        .int64(r.getAuthorId())
+                        .text(r.getCookTime())
+                        .text(r.getPrepTime())
+                        .text(r.getTotalTime())
+                        .timestamp(r.getDatePublished())
+                        .text(r.getDescription())
+                        .text(r.getRecipeCategory())
+                        .float4(r.getCalories())
+                        .float4(r.getFatContent())
+                        .float4(r.getSaturatedFatContent())
+                        .float4(r.getCholesterolContent())
+                        .float4(r.getSodiumContent())
+                        .float4(r.getCarbohydrateContent())
+                        .float4(r.getFiberContent())
+                        .float4(r.getSugarContent())
+                        .float4(r.getProteinContent())
+                        .int32(r.getRecipeServings())
+                        .text(r.getRecipeYield())
+                        .float4(r.getAggregatedRating())
+                        .int32(r.getReviewCount())
+                        .endRow();
+            }
+            return w.finish();
+        }
+    }
+
+    @Override
+    public long writeIngredients(Connection conn, Iterable<RecipeRecord> recipes) throws SQLException {
+        // cleanIngredients already dedups inside one recipe, and RecipeId is unique, so no staging is needed
+        try (CopyRowWriter w = CopyRowWriter.open(conn, "COPY ingredient (RecipeId, Ingredient) FROM STDIN")) {
+            for (IngredientBatch batch : ImportRecords.prepareIngredients(recipes)) {
+                for (int i = 0; i < batch.size(); i++) {
+                    w.int64(batch.recipeId(i)).text(batch.ingredient(i)).endRow();
+                }
+            }
+            return w.finish();
+        }
+    }
+
+    @Override
+    public long writeReviews(Connection conn, Iterable<ReviewRecord> reviews) throws SQLException {
+        try (CopyRowWriter w = CopyRowWriter.open(conn,
+                "COPY reviews (RecipeId, AuthorId, Rating, Review, DateSubmitted, DateModified) FROM STDIN")) {
+            for (ReviewRecord rv : reviews) {
+                w.int64(rv.getRecipeId())
+                        .int64(rv.getAuthorId())
+                        .float4(rv.getRating())
+                        .text(rv.getReview())
+                        .timestamp(rv.getDateSubmitted())
+                        .timestamp(rv.getDateModified())
+                        .endRow();
+            }
+            return w.finish();
+        }
+    }
+
+    @Override
+    public long writeLikePairs(Connection conn, Iterable<LongPairBuffer> likes) throws SQLException {
+        return writePairs(conn, "COPY like_review (AuthorId, LikeReviewId) FROM STDIN", likes);
+    }
+
+    @Override
+    public long writeFollowPairs(Connection conn, Iterable<LongPairBuffer> follows) throws SQLException {
+        return writePairs(conn, "COPY follow (FollowerId, FolloweeId) FROM STDIN", follows);
+    }
+
+    private static long writePairs(Connection conn, String sql, Iterable<LongPairBuffer> batches) throws SQLException {
+        try (CopyRowWriter w = CopyRowWriter.open(conn, sql)) {
+            for (LongPairBuffer pairs : batches) {
+                for (int i = 0; i < pairs.size(); i++) {
+                    w.int64(pairs.first(i)).int64(pairs.second(i)).endRow();
+                }
+            }
+            return w.finish();
+        }
+    }
+}
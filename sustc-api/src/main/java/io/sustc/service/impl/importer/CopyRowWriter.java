@@ -0,0 +1,158 @@
+package io.sustc.service.impl.importer;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Encodes rows in the {@code COPY ... FROM STDIN} text format and streams them to PostgreSQL.
+ * <p>
+ * Columns are appended one by one into a single reusable buffer that is flushed every
+ * {@value #FLUSH_THRESHOLD} characters, so no per-row object is built.
+ * Floats are written as their exact {@code double} widening, which is what
+ * {@code PreparedStatement#setFloat} would have stored into a {@code float} column.
+ */
+public class CopyRowWriter implements AutoCloseable {
+
+    private static final int FLUSH_THRESHOLD = 1 << 16;
+
+    private final CopyIn copyIn;
+
+    private final StringBuilder buf = new StringBuilder(FLUSH_THRESHOLD + 1024);
+
+    private boolean rowStart = true;
+
+    private long rows;
+
+    private long bytesSent;
+
+    private CopyRowWriter(CopyIn copyIn) {
+        this.copyIn = copyIn;
+    }
+
+    /**
+     * Starts a {@code COPY} on the given (possibly pooled) connection.
+     *
+     * @param sql a {@code COPY table (columns) FROM STDIN} statement
+     */
+    public static CopyRowWriter open(Connection conn, String sql) throws SQLException {
+        return new CopyRowWriter(conn.unwrap(PGConnection.class).getCopyAPI().copyIn(sql));
+    }
+
+    public CopyRowWriter text(String value) {
+        separate();
+        if (value == null) {
+            buf.append("\\N");
+            return this;
+        }
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    buf.append("\\\\");
+                    break;
+                case '\n':
+                    buf.append("\\n");
+                    break;
+                case '\r':
+                    buf.append("\\r");
+                    break;
+                case '\t':
+                    buf.append("\\t");
+                    break;
+                default:
+                    buf.append(c);
+            }
+        }
+        return this;
+    }
+
+    public CopyRowWriter int64(long value) {
+        separate();
+        buf.append(value);
+        return this;
+    }
+
+    public CopyRowWriter int32(int value) {
+        separate();
+        buf.append(value);
+        return this;
+    }
+
+    public CopyRowWriter float4(float value) {
+        separate();
+        buf.append((double) value);
+        return this;
+    }
+
+    public CopyRowWriter bool(boolean value) {
+        separate();
+        buf.append(value ? 't' : 'f');
+        return this;
+    }
+
+    public CopyRowWriter timestamp(Timestamp value) {
+        separate();
+        if (value == null) {
+            buf.append("\\N");
+        } else {
+            buf.append(value);
+        }
+        return this;
+    }
+
+    public void endRow() throws SQLException {
+        buf.append('\n');
+        rowStart = true;
+        rows++;
+        if (buf.length() >= FLUSH_THRESHOLD) {
+            flush();
+        }
+    }
+
+    /**
+     * Sends the remaining buffer and completes the {@code COPY}.
+     *
+     * @return the number of rows the server reported as copied
+     */
+    public long finish() throws SQLException {
+        flush();
+        return copyIn.endCopy();
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (copyIn.isActive()) {
+            copyIn.cancelCopy();
+        }
+    }
+
+    private void separate() {
+        if (rowStart) {
+            rowStart = false;
+        } else {
+            buf.append('\t');
+        }
+    }
+
+    private void flush() throws SQLException {
+        if (buf.length() == 0) return;
+        byte[] bytes = buf.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        bytesSent += bytes.length;
+        ImportMetrics.addBytesSent(bytes.length);
+        buf.setLength(0);
+    }
+}
@@ -0,0 +1,269 @@
+package io.sustc.service.impl.importer;
+
+import io.sustc.dto.RecipeRecord;
+import io.sustc.dto.ReviewRecord;
+import io.sustc.dto.UserRecord;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Applies a changed subset of records to an already imported database.
+ * <p>
+ * The records are copied into temporary {@code *_delta} tables shaped like their targets and merged
+ * with set-based {@code INSERT ... ON CONFLICT DO UPDATE}, keyed on the ids carried by the records.
+ * Every record is authoritative for what hangs off it: a recipe for its ingredients, a review for its likes,
+ * a user for the follow edges it takes part in. Derived columns are only recomputed for the keys touched:
+ * {@code AggregatedRating}/{@code ReviewCount} of recipes whose reviews changed, and the follow counters
+ * of users whose edges changed (through the follow triggers, then reset for the upserted users
+ * the same way a full import computes them).
+ * <p>
+ * Must run inside a transaction, the stage tables are dropped on commit.
+ */
+@Component
+@Slf4j
+public class DeltaImporter {
+
+    private static final String[] STAGES = {
+            "create temp table users_delta (like users) on commit drop;",
+            "create temp table follow_delta (like follow) on commit drop;",
+            "create temp table recipes_delta (like recipes) on commit drop;",
+            "create temp table ingredient_delta (like ingredient) on commit drop;",
+            "create temp table reviews_delta (like reviews) on commit drop;",
+            "create temp table like_review_delta (like like_review) on commit drop;",
+    };
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void apply(List<ReviewRecord> reviewRecords, List<UserRecord> userRecords, List<RecipeRecord> recipeRecords) {
+        for (String sql : STAGES) {
+            jdbcTemplate.execute(sql);
+        }
+        Connection conn = DataSourceUtils.getConnection(dataSource);
+        try {
+            if (userRecords != null) {
+                stageUsers(conn, userRecords);
+                stagePairs(conn, "COPY follow_delta (FollowerId, FolloweeId) FROM STDIN",
+                        ImportRecords.collectFollows(userRecords));
+            }
+            if (recipeRecords != null) {
+                stageRecipes(conn, recipeRecords);
+            }
+            if (reviewRecords != null) {
+                stageReviews(conn, reviewRecords);
+                stagePairs(conn, "COPY like_review_delta (AuthorId, LikeReviewId) FROM STDIN",
+                        ImportRecords.collectLikes(reviewRecords));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(conn, dataSource);
+        }
+
+        int users = mergeUsers();
+        int recipes = mergeRecipes();
+        int reviews = mergeReviews();
+        int follows = mergeFollows();
+        log.info("Delta applied: users={}, recipes={}, reviews={}, follow edges changed={}", users, recipes, reviews, follows);
+    }
+
+    private void stageUsers(Connection conn, List<UserRecord> users) throws SQLException {
+        try (CopyRowWriter w = CopyRowWriter.open(conn,
+                "COPY users_delta (AuthorId, AuthorName, Gender, Age, FollowerCount, FolloweeCount, Password, Is_Deleted) FROM STDIN")) {
+            for (UserRecord u : users) {
+                w.int64(u.getAuthorId())
+                        .text(u.getAuthorName())
+                        .text(ImportRecords.normalizeGender(u.getGender()))
+                        .int32(u.getAge())
+                        .int64(u.getFollowers())
+                        .int64(u.getFollowing())
+                        .text(u.getPassword())
+                        .bool(u.isDeleted())
+                        .endRow();
+            }
+            w.finish();
+        }
+    }
+
+    private void stageRecipes(Connection conn, List<RecipeRecord> recipes) throws SQLException {
+        try (CopyRowWriter w = CopyRowWriter.open(conn,
+                "COPY recipes_delta (RecipeId, Name, AuthorId, CookTime, PrepTime, TotalTime, DatePublished, Description, RecipeCategory, " +
+                        "Calories, FatContent, SaturatedFatContent, CholesterolContent, SodiumContent, CarbohydrateContent, " +
+                        "FiberContent, SugarContent, ProteinContent, RecipeServings, RecipeYield, AggregatedRating, ReviewCount) FROM STDIN")) {
+            for (RecipeRecord r : recipes) {
+                w.int64(r.getRecipeId())
+                        .text(r.getName())
+                        .int64(r.getAuthorId())
+                        .text(r.getCookTime())
+                        .text(r.getPrepTime())
+                        .text(r.getTotalTime())
+                        .timestamp(r.getDatePublished())
+                        .text(r.getDescription())
+                        .text(r.getRecipeCategory())
+                        .float4(r.getCalories())
+                        .float4(r.getFatContent())
+                        .float4(r.getSaturatedFatContent())
+                        .float4(r.getCholesterolContent())
+                        .float4(r.getSodiumContent())
+                        .float4(r.getCarbohydrateContent())
+                        .float4(r.getFiberContent())
+                        .float4(r.getSugarContent())
+                        .float4(r.getProteinContent())
+                        .int32(r.getRecipeServings())
+                        .text(r.getRecipeYield())
+                        .float4(r.getAggregatedRating())
+                        .int32(r.getReviewCount())
+                        .endRow();
+            }
+            w.finish();
+        }
+        try (CopyRowWriter w = CopyRowWriter.open(conn, "COPY ingredient_delta (RecipeId, Ingredient) FROM STDIN")) {
+            for (RecipeRecord r : recipes) {
+                for (String p : ImportRecords.cleanIngredients(r.getRecipeIngredientParts())) {
+                    w.int64(r.getRecipeId()).text(p).endRow();
+                }
+            }
+            w.finish();
+        }
+    }
+
+    private void stageReviews(Connection conn, List<ReviewRecord> reviews) throws SQLException {
+        try (CopyRowWriter w = CopyRowWriter.open(conn,
+                "COPY reviews_delta (ReviewId, RecipeId, AuthorId, Rating, Review, DateSubmitted, DateModified) FROM STDIN")) {
+            for (ReviewRecord rv : reviews) {
+                w.int64(rv.getReviewId())
+                        .int64(rv.getRecipeId())
+                        .int64(rv.getAuthorId())
+                        .float4(rv.getRating())
+                        .text(rv.getReview())
+                        .timestamp(rv.getDateSubmitted())
+                        .timestamp(rv.getDateModified())
+                        .endRow();
+            }
+            w.finish();
+        }
+    }
+
+    private static void stagePairs(Connection conn, String sql, LongPairBuffer pairs) throws SQLException {
+        try (CopyRowWriter w = CopyRowWriter.open(conn, sql)) {
+            for (int i = 0; i < pairs.size(); i++) {
+                w.int64(pairs.first(i)).int64(pairs.second(i)).endRow();
+            }
+            w.finish();
+        }
+    }
+
+    private int mergeUsers() {
+        int rows = jdbcTemplate.update(
+                "insert into users (AuthorId, AuthorName, Gender, Age, FollowerCount, FolloweeCount, Password, Is_Deleted)\n" +
+                        "select AuthorId, AuthorName, Gender, Age, FollowerCount, FolloweeCount, Password, Is_Deleted from users_delta\n" +
+                        "on conflict (AuthorId) do update set\n" +
+                        "    AuthorName = excluded.AuthorName, Gender = excluded.Gender, Age = excluded.Age,\n" +
+                        "    FollowerCount = excluded.FollowerCount, FolloweeCount = excluded.FolloweeCount,\n" +
+                        "    Password = excluded.Password, Is_Deleted = excluded.Is_Deleted;");
+        syncSerial("users", "AuthorId");
+        return rows;
+    }
+
+    private int mergeRecipes() {
+        int rows = jdbcTemplate.update(
+                "insert into recipes (RecipeId, Name, AuthorId, CookTime, PrepTime, TotalTime, DatePublished, Description, RecipeCategory,\n" +
+                        "    Calories, FatContent, SaturatedFatContent, CholesterolContent, SodiumContent, CarbohydrateContent,\n" +
+                        "    FiberContent, SugarContent, ProteinContent, RecipeServings, RecipeYield, AggregatedRating, ReviewCount)\n" +
+                        "select RecipeId, Name, AuthorId, CookTime, PrepTime, TotalTime, DatePublished, Description, RecipeCategory,\n" +
+                        "    Calories, FatContent, SaturatedFatContent, CholesterolContent, SodiumContent, CarbohydrateContent,\n" +
+                        "    FiberContent, SugarContent, ProteinContent, RecipeServings, RecipeYield, AggregatedRating, ReviewCount\n" +
+                        "from recipes_delta\n" +
+                        "on conflict (RecipeId) do update set\n" +
+                        "    Name = excluded.Name, AuthorId = excluded.AuthorId, CookTime = excluded.CookTime,\n" +
+                        "    PrepTime = excluded.PrepTime, TotalTime = excluded.TotalTime, DatePublished = excluded.DatePublished,\n" +
+                        "    Description = excluded.Description, RecipeCategory = excluded.RecipeCategory,\n" +
+                        "    Calories = excluded.Calories, FatContent = excluded.FatContent,\n" +
+                        "    SaturatedFatContent = excluded.SaturatedFatContent, CholesterolContent = excluded.CholesterolContent,\n" +
+                        "    SodiumContent = excluded.SodiumContent, CarbohydrateContent = excluded.CarbohydrateContent,\n" +
+                        "    FiberContent = excluded.FiberContent, SugarContent = excluded.SugarContent,\n" +
+                        "    ProteinContent = excluded.ProteinContent, RecipeServings = excluded.RecipeServings,\n" +
+                        "    RecipeYield = excluded.RecipeYield, AggregatedRating = excluded.AggregatedRating,\n" +
+                        "    ReviewCount = excluded.ReviewCount;");
+        syncSerial("recipes", "RecipeId");
+
+        // The ingredient set of an upserted recipe is replaced as a whole
+        jdbcTemplate.update("delete from ingredient where RecipeId in (select RecipeId from recipes_delta);");
+        jdbcTemplate.update("insert into ingredient (RecipeId, Ingredient) select RecipeId, Ingredient from ingredient_delta;");
+        return rows;
+    }
+
+    private int mergeReviews() {
+        // Recipes that lose or gain a review, captured before reviews may move to another recipe
+        jdbcTemplate.execute(
+                "create temp table rated_recipes_delta on commit drop as\n" +
+                        "select RecipeId from reviews where ReviewId in (select ReviewId from reviews_delta)\n" +
+                        "union\n" +
+                        "select RecipeId from reviews_delta;");
+
+        int rows = jdbcTemplate.update(
+                "insert into reviews (ReviewId, RecipeId, AuthorId, Rating, Review, DateSubmitted, DateModified)\n" +
+                        "select ReviewId, RecipeId, AuthorId, Rating, Review, DateSubmitted, DateModified from reviews_delta\n" +
+                        "on conflict (ReviewId) do update set\n" +
+                        "    RecipeId = excluded.RecipeId, AuthorId = excluded.AuthorId, Rating = excluded.Rating,\n" +
+                        "    Review = excluded.Review, DateSubmitted = excluded.DateSubmitted, DateModified = excluded.DateModified;");
+        syncSerial("reviews", "ReviewId");
+
+        jdbcTemplate.update("delete from like_review where LikeReviewId in (select ReviewId from reviews_delta);");
+        jdbcTemplate.update("insert into like_review (AuthorId, LikeReviewId) select AuthorId, LikeReviewId from like_review_delta;");
+
+        // Same rounding as ReviewServiceImpl#refreshRecipeAggregatedRating
+        jdbcTemplate.update(
+                "update recipes r\n" +
+                        "set AggregatedRating = s.rating, ReviewCount = s.cnt\n" +
+                        "from (\n" +
+                        "    select t.RecipeId, round(avg(v.Rating)::numeric, 2) as rating, count(v.ReviewId) as cnt\n" +
+                        "    from rated_recipes_delta t left join reviews v on v.RecipeId = t.RecipeId\n" +
+                        "    group by t.RecipeId\n" +
+                        ") s\n" +
+                        "where r.RecipeId = s.RecipeId;");
+        return rows;
+    }
+
+    /**
+     * Replaces the edges of the upserted users with the ones their records list. The follow triggers keep
+     * the counters of the other end of every added or removed edge up to date; the upserted users themselves
+     * get their imported counters plus their current edges, as after a full import.
+     */
+    private int mergeFollows() {
+        int removed = jdbcTemplate.update(
+                "delete from follow f\n" +
+                        "where (f.FollowerId in (select AuthorId from users_delta) or f.FolloweeId in (select AuthorId from users_delta))\n" +
+                        "  and not exists (select 1 from follow_delta d where d.FollowerId = f.FollowerId and d.FolloweeId = f.FolloweeId);");
+        int added = jdbcTemplate.update(
+                "insert into follow (FollowerId, FolloweeId)\n" +
+                        "select d.FollowerId, d.FolloweeId from follow_delta d\n" +
+                        "where not exists (select 1 from follow f where f.FollowerId = d.FollowerId and f.FolloweeId = d.FolloweeId);");
+        jdbcTemplate.update(
+                "update users u\n" +
+                        "set FollowerCount = d.FollowerCount + (select count(*) from follow f where f.FolloweeId = u.AuthorId),\n" +
+                        "    FolloweeCount = d.FolloweeCount + (select count(*) from follow f where f.FollowerId = u.AuthorId)\n" +
+                        "from users_delta d\n" +
+                        "where u.AuthorId = d.AuthorId;");
+        return removed + added;
+    }
+
+    /**
+     * Rows were inserted with explicit ids, move the sequence past them for rows created later by the services.
+     */
+    private void syncSerial(String table, String idColumn) {
+        jdbcTemplate.execute("select setval(pg_get_serial_sequence('" + table + "', '" + idColumn.toLowerCase() + "'), " +
+                "coalesce((select max(" + idColumn + ") from " + table + "), 0) + 1, false);");
+    }
+}
@@ -0,0 +1,179 @@
+package io.sustc.service.impl.importer;
+
+import io.sustc.dto.ImportMode;
+import io.sustc.dto.ImportPhase;
+import io.sustc.dto.ImportReport;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Collects per-phase measurements of one import, safe to use from several loader threads.
+ * <p>
+ * A phase may be measured several times (slices, chunks); the runs are merged into one entry.
+ * {@link CopyRowWriter} reports the bytes it sends to the phase running on the current thread.
+ * Heap peaks come from the JVM heap pools: their peak is reset when no other phase is running,
+ * so overlapping phases share one high-water mark.
+ */
+public class ImportMetrics {
+
+    private static final List<MemoryPoolMXBean> HEAP_POOLS = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP && pool.isValid())
+            .collect(Collectors.toList());
+
+    private static final ThreadLocal<Phase> CURRENT = new ThreadLocal<>();
+
+    private final ImportMode mode;
+
+    private final long startNanos = System.nanoTime();
+
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+
+    private final AtomicInteger running = new AtomicInteger();
+
+    @FunctionalInterface
+    public interface Work {
+        long run() throws SQLException;
+    }
+
+    public ImportMetrics(ImportMode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Runs {@code work} as (part of) the phase {@code name}.
+     *
+     * @param work returns the number of rows it wrote
+     */
+    public long measure(String name, Work work) throws SQLException {
+        Phase phase;
+        synchronized (phases) {
+            phase = phases.computeIfAbsent(name, k -> new Phase());
+        }
+        if (running.getAndIncrement() == 0) {
+            HEAP_POOLS.forEach(MemoryPoolMXBean::resetPeakUsage);
+        }
+        Phase outer = CURRENT.get();
+        CURRENT.set(phase);
+        long start = System.nanoTime();
+        try {
+            long rows = work.run();
+            phase.addRows(rows);
+            return rows;
+        } finally {
+            long end = System.nanoTime();
+            CURRENT.set(outer);
+            phase.ran(start, end, heapPeak());
+            running.decrementAndGet();
+        }
+    }
+
+    /**
+     * Same as {@link #measure(String, Work)} for schema work that reports no rows.
+     */
+    public void measureSchema(String name, Runnable work) {
+        try {
+            measure(name, () -> {
+                work.run();
+                return 0;
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Wraps every load of the plan so that it is measured under its table's name.
+     */
+    public Map<ImportTable, List<TableLoad>> instrument(Map<ImportTable, List<TableLoad>> plan) {
+        Map<ImportTable, List<TableLoad>> instrumented = new EnumMap<>(ImportTable.class);
+        plan.forEach((table, loads) -> {
+            List<TableLoad> wrapped = new ArrayList<>(loads.size());
+            for (TableLoad load : loads) {
+                wrapped.add(conn -> measure(phaseName(table), () -> load.load(conn)));
+            }
+            instrumented.put(table, wrapped);
+        });
+        return instrumented;
+    }
+
+    public static String phaseName(ImportTable table) {
+        return table.name().toLowerCase();
+    }
+
+    /**
+     * Adds bytes sent to the database to the phase running on this thread, if any.
+     */
+    static void addBytesSent(long bytes) {
+        Phase phase = CURRENT.get();
+        if (phase != null) {
+            phase.addBytes(bytes);
+        }
+    }
+
+    public ImportReport report() {
+        List<ImportPhase> list = new ArrayList<>();
+        synchronized (phases) {
+            phases.forEach((name, phase) -> list.add(phase.toPhase(name)));
+        }
+        return ImportReport.builder()
+                .mode(mode)
+                .elapsedNanos(System.nanoTime() - startNanos)
+                .phases(list)
+                .build();
+    }
+
+    private static long heapPeak() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : HEAP_POOLS) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    private static class Phase {
+
+        private long rows;
+
+        private long bytes;
+
+        private long firstStart = Long.MAX_VALUE;
+
+        private long lastEnd = Long.MIN_VALUE;
+
+        private long heapPeak;
+
+        synchronized void addRows(long rows) {
+            this.rows += rows;
+        }
+
+        synchronized void addBytes(long bytes) {
+            this.bytes += bytes;
+        }
+
+        synchronized void ran(long start, long end, long heap) {
+            firstStart = Math.min(firstStart, start);
+            lastEnd = Math.max(lastEnd, end);
+            heapPeak = Math.max(heapPeak, heap);
+        }
+
+        synchronized ImportPhase toPhase(String name) {
+            return ImportPhase.builder()
+                    .name(name)
+                    .rows(rows)
+                    .elapsedNanos(lastEnd >= firstStart ? lastEnd - firstStart : 0)
+                    .bytesSent(bytes)
+                    .heapHighWaterBytes(heapPeak)
+                    .build();
+        }
+    }
+}
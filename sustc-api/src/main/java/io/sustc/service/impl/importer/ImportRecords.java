@@ -0,0 +1,186 @@
+package io.sustc.service.impl.importer;
+
+import io.sustc.dto.RecipeRecord;
+import io.sustc.dto.ReviewRecord;
+import io.sustc.dto.UserRecord;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Row-level cleanup shared by every {@link ImportStrategy}.
+ */
+public final class ImportRecords {
+
+    /**
+     * Records per preprocessing batch.
+     */
+    private static final int BATCH_RECORDS = 4096;
+
+    private ImportRecords() {
+    }
+
+    public static String normalizeGender(String gender) {
+        if (gender != null && gender.equalsIgnoreCase("MALE")) return "Male";
+        if (gender != null && gender.equalsIgnoreCase("FEMALE")) return "Female";
+        return gender;
+    }
+
+    /**
+     * Trims the ingredient parts, drops empty and duplicated ones,
+     * and sorts the rest case-insensitively.
+     */
+    public static List<String> cleanIngredients(String[] parts) {
+        if (parts == null || parts.length == 0) return List.of();
+        List<String> cleaned = new ArrayList<>(parts.length);
+        for (String p : parts) {
+            if (p == null) continue;
+            String t = p.trim();
+            if (!t.isEmpty()) cleaned.add(t);
+        }
+        cleaned = new ArrayList<>(new LinkedHashSet<>(cleaned)); // keep order but dedup
+        cleaned.sort(String.CASE_INSENSITIVE_ORDER);
+        return cleaned;
+    }
+
+    /**
+     * Collects the {@code (FollowerId, FolloweeId)} edges of both {@link UserRecord#getFollowerUsers()}
+     * and {@link UserRecord#getFollowingUsers()}, without self-follows. An edge listed by both of its
+     * users appears once.
+     */
+    public static LongPairBuffer collectFollows(Iterable<UserRecord> users) {
+        LongPairBuffer follows = new LongPairBuffer();
+        for (UserRecord u : users) {
+            long author = u.getAuthorId();
+            long[] followers = u.getFollowerUsers();
+            if (followers != null) {
+                for (long f : followers) {
+                    if (f != author) follows.add(f, author);
+                }
+            }
+            long[] following = u.getFollowingUsers();
+            if (following != null) {
+                for (long fo : following) {
+                    if (fo != author) follows.add(author, fo);
+                }
+            }
+        }
+        follows.sortAndDedup();
+        return follows;
+    }
+
+    /**
+     * Collects the distinct {@code (AuthorId, LikeReviewId)} edges of {@link ReviewRecord#getLikes()}.
+     */
+    public static LongPairBuffer collectLikes(Iterable<ReviewRecord> reviews) {
+        LongPairBuffer likes = new LongPairBuffer();
+        for (ReviewRecord rv : reviews) {
+            long[] likers = rv.getLikes();
+            if (likers == null) continue;
+            for (long liker : likers) {
+                likes.add(liker, rv.getReviewId());
+            }
+        }
+        likes.sortAndDedup();
+        return likes;
+    }
+
+    /**
+     * Cleaned ingredient rows in batches. A {@link List} is prepared in parallel on the fork-join pool,
+     * ahead of the caller, any other source batch by batch as it is iterated.
+     */
+    public static Iterable<IngredientBatch> prepareIngredients(Iterable<RecipeRecord> recipes) {
+        return batches(recipes, slice -> {
+            IngredientBatch batch = new IngredientBatch(slice.size() * 8);
+            for (RecipeRecord r : slice) {
+                for (String p : cleanIngredients(r.getRecipeIngredientParts())) {
+                    batch.add(r.getRecipeId(), p);
+                }
+            }
+            return batch;
+        });
+    }
+
+    /**
+     * Distinct like pairs in batches, prepared like {@link #prepareIngredients}.
+     * Batches hold different reviews, so no pair repeats across them.
+     */
+    public static Iterable<LongPairBuffer> prepareLikes(Iterable<ReviewRecord> reviews) {
+        return batches(reviews, ImportRecords::collectLikes);
+    }
+
+    /**
+     * Distinct follow pairs in batches. The same edge may be listed by any two users, so a {@link List} is
+     * partitioned by follower id rather than by record: every batch scans all users but keeps only
+     * its own followers, which makes the batches disjoint. Other sources yield a single batch.
+     */
+    public static Iterable<LongPairBuffer> prepareFollows(Iterable<UserRecord> users) {
+        if (!(users instanceof List) || ((List<UserRecord>) users).size() < BATCH_RECORDS) {
+            return List.of(collectFollows(users));
+        }
+        int partitions = ForkJoinPool.getCommonPoolParallelism();
+        List<Supplier<LongPairBuffer>> tasks = new ArrayList<>(partitions);
+        for (int p = 0; p < partitions; p++) {
+            int partition = p;
+            tasks.add(() -> {
+                LongPairBuffer follows = new LongPairBuffer();
+                for (UserRecord u : users) {
+                    long author = u.getAuthorId();
+                    boolean ownsAuthor = Math.floorMod(author, partitions) == partition;
+                    long[] followers = u.getFollowerUsers();
+                    if (followers != null) {
+                        for (long f : followers) {
+                            if (f != author && Math.floorMod(f, partitions) == partition) follows.add(f, author);
+                        }
+                    }
+                    long[] following = u.getFollowingUsers();
+                    if (following != null && ownsAuthor) {
+                        for (long fo : following) {
+                            if (fo != author) follows.add(author, fo);
+                        }
+                    }
+                }
+                follows.sortAndDedup();
+                return follows;
+            });
+        }
+        return new PrepPipeline<>(tasks, partitions);
+    }
+
+    private static <T, R> Iterable<R> batches(Iterable<T> records, Function<List<T>, R> prep) {
+        if (records instanceof List) {
+            List<T> list = (List<T>) records;
+            List<Supplier<R>> tasks = new ArrayList<>();
+            for (int from = 0; from < list.size(); from += BATCH_RECORDS) {
+                List<T> slice = list.subList(from, Math.min(list.size(), from + BATCH_RECORDS));
+                tasks.add(() -> prep.apply(slice));
+            }
+            return new PrepPipeline<>(tasks, PrepPipeline.defaultWindow());
+        }
+        // One-shot sources cannot be split ahead of time
+        return () -> new Iterator<>() {
+            private final Iterator<T> source = records.iterator();
+
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            @Override
+            public R next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                List<T> slice = new ArrayList<>(BATCH_RECORDS);
+                while (slice.size() < BATCH_RECORDS && source.hasNext()) {
+                    slice.add(source.next());
+                }
+                return prep.apply(slice);
+            }
+        };
+    }
+}
@@ -0,0 +1,110 @@
+package io.sustc.service.impl.importer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs an import plan on several pooled connections at once.
+ * <p>
+ * A table starts as soon as every table in {@link ImportTable#getDependencies()} has committed,
+ * so independent tables (e.g. {@code ingredient}, {@code reviews} and {@code follow}) load side by side.
+ * Each {@link TableLoad} runs in its own transaction on its own connection.
+ * After the first failure no further load is started and the failure is rethrown once
+ * everything already running has stopped; undoing the committed tables is up to the caller.
+ */
+@Component
+@Slf4j
+public class ImportScheduler {
+
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * @param plan        the loads of each table; a table may be split into several independent loads
+     * @param parallelism the maximum number of connections used at the same time
+     * @return the number of rows written into each table
+     */
+    public Map<ImportTable, Long> run(Map<ImportTable, List<TableLoad>> plan, int parallelism) {
+        AtomicInteger threadId = new AtomicInteger();
+        @SuppressWarnings("AlibabaThreadPoolCreation")
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "import-" + threadId.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Map<ImportTable, CompletableFuture<Long>> futures = new EnumMap<>(ImportTable.class);
+        try {
+            // values() is in dependency order, so every dependency already has its future
+            for (ImportTable table : ImportTable.values()) {
+                List<TableLoad> loads = plan.getOrDefault(table, List.of());
+                CompletableFuture<?>[] dependencies = table.getDependencies().stream()
+                        .map(futures::get)
+                        .toArray(CompletableFuture[]::new);
+                futures.put(table, CompletableFuture.allOf(dependencies)
+                        .thenCompose(v -> runAll(table, loads, executor, failure)));
+            }
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = failure.get() != null ? failure.get() : e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new RuntimeException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<ImportTable, Long> rows = new EnumMap<>(ImportTable.class);
+        futures.forEach((table, future) -> rows.put(table, future.join()));
+        return rows;
+    }
+
+    private CompletableFuture<Long> runAll(ImportTable table, List<TableLoad> loads,
+                                           ExecutorService executor, AtomicReference<Throwable> failure) {
+        List<CompletableFuture<Long>> parts = new ArrayList<>(loads.size());
+        for (TableLoad load : loads) {
+            parts.add(CompletableFuture.supplyAsync(() -> {
+                if (failure.get() != null) {
+                    throw new IllegalStateException("Import already failed, skipping " + table);
+                }
+                try {
+                    return runInTransaction(load);
+                } catch (SQLException | RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                    log.error("Failed to load {}", table, e);
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> parts.stream().mapToLong(CompletableFuture::join).sum());
+    }
+
+    private long runInTransaction(TableLoad load) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                long rows = load.load(conn);
+                conn.commit();
+                return rows;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+}
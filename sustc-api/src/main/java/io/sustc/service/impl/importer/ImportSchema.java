@@ -0,0 +1,281 @@
+package io.sustc.service.impl.importer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * DDL of the project schema, split so that it can be built either before or after the bulk load.
+ * <p>
+ * {@link #createTables()} only creates bare tables (columns and check constraints).
+ * Primary keys, foreign keys and the btree indexes are added by {@link #createConstraints()}, and the follow
+ * counter triggers by {@link #createTriggers()}.
+ * {@link #createSearchIndexes()} adds the generated {@code SearchVector} column of {@code recipes} with its GIN
+ * index, and GIN trigram indexes on {@code lower(Name)} and {@code lower(Description)} for substring search.
+ * The trigram indexes need {@code pg_trgm}; when the extension cannot be created they are skipped with a warning.
+ * <p>
+ * Running the four phases back to back on empty tables gives the same schema as {@link #createAll()}. Compared
+ * with the original course schema, {@code recipes} has the extra {@code SearchVector} column and the trigram
+ * indexes replace {@code recipes_name_index}.
+ */
+@Component
+@Slf4j
+public class ImportSchema {
+
+    private static final String[] TABLES = {
+            "create table users (\n" +
+                    "    AuthorId bigserial,\n" +
+                    "    AuthorName varchar not null check ( AuthorName != '' ),\n" +
+                    "    Gender varchar check ( Gender = 'Male' or Gender = 'Female' ),\n" +
+                    "    Age int check ( Age > 0 ),\n" +
+                    "    Is_Deleted boolean,\n" +
+                    "    FollowerCount bigint,\n" +
+                    "    FolloweeCount bigint,\n" +
+                    "    Password varchar\n" +
+                    ");",
+
+            "create table follow (\n" +
+                    "    FollowerId bigint,\n" +
+                    "    FolloweeId bigint\n" +
+                    ");",
+
+            "create table recipes (\n" +
+                    "    RecipeId bigserial,\n" +
+                    "    Name varchar not null check ( Name != '' ),\n" +
+                    "    AuthorId bigint,\n" +
+                    "    CookTime varchar,\n" +
+                    "    PrepTime varchar,\n" +
+                    "    TotalTime varchar,\n" +
+                    "    DatePublished timestamp,\n" +
+                    "    Description varchar,\n" +
+                    "    RecipeCategory varchar,\n" +
+                    "    Calories float,\n" +
+                    "    FatContent float,\n" +
+                    "    SaturatedFatContent float,\n" +
+                    "    CholesterolContent float,\n" +
+                    "    SodiumContent float,\n" +
+                    "    CarbohydrateContent float,\n" +
+                    "    FiberContent float,\n" +
+                    "    SugarContent float,\n" +
+                    "    ProteinContent float,\n" +
+                    "    RecipeServings int,\n" +
+                    "    RecipeYield varchar,\n" +
+                    "    AggregatedRating float,\n" +
+                    "    ReviewCount int\n" +
+                    ");",
+
+            "create table ingredient (\n" +
+                    "    RecipeId bigint,\n" +
+                    "    Ingredient varchar\n" +
+                    ");",
+
+            "create table reviews (\n" +
+                    "    ReviewId bigserial,\n" +
+                    "    RecipeId bigint,\n" +
+                    "    AuthorId bigint,\n" +
+                    "    Rating float,\n" +
+                    "    Review varchar,\n" +
+                    "    DateSubmitted timestamp,\n" +
+                    "    DateModified timestamp\n" +
+                    ");",
+
+            "create table like_review (\n" +
+                    "    AuthorId bigint,\n" +
+                    "    LikeReviewId bigint\n" +
+                    ");",
+    };
+
+    private static final String[] CONSTRAINTS = {
+            // primary keys first, the foreign keys below need them
+            "alter table users add constraint pk_users primary key (AuthorId);",
+            "alter table recipes add constraint pk_recipes primary key (RecipeId);",
+            "alter table reviews add constraint pk_reviews primary key (ReviewId);",
+            "alter table follow add constraint pk_follow primary key (FollowerId, FolloweeId);",
+            "alter table ingredient add constraint pk_ingredient primary key (RecipeId, Ingredient);",
+            "alter table like_review add constraint pk_like_review primary key (AuthorId, LikeReviewId);",
+
+            "alter table follow add constraint fk1_follow_users foreign key (FollowerId) references users(AuthorId);",
+            "alter table follow add constraint fk2_follow_users foreign key (FolloweeId) references users(AuthorId);",
+            "alter table recipes add constraint fk1_recipes_users foreign key (AuthorId) references users(AuthorId);",
+            "alter table ingredient add constraint fk_ingredient_recipe foreign key (RecipeId) references recipes(RecipeId) on delete cascade;",
+            "alter table reviews add constraint fk1_reviews foreign key (RecipeId) references recipes on delete cascade;",
+            "alter table reviews add constraint fk2_reviews foreign key (AuthorId) references users;",
+            "alter table like_review add constraint fk1_like_review foreign key (AuthorId) references users(AuthorId);",
+            "alter table like_review add constraint fk2_like_review foreign key (LikeReviewId) references reviews(ReviewId) on delete cascade;",
+
+            "create index follow_followee_index on follow(FolloweeId);",
+            "create index recipes_category_index on recipes(RecipeCategory);",
+            "create index recipes_rating_index on recipes(AggregatedRating desc);",
+            "create index recipes_date_index on recipes(DatePublished desc);",
+            "create index ingredient_index on ingredient(Ingredient);",
+            "create index like_review_index on like_review(LikeReviewId);",
+    };
+
+    /**
+     * Name and description as one weighted {@code tsvector}, kept current by PostgreSQL itself.
+     * Name matches weigh more than description matches when ranked.
+     */
+    private static final String[] SEARCH = {
+            "alter table recipes add column SearchVector tsvector generated always as (\n" +
+                    "    setweight(to_tsvector('english', coalesce(Name, '')), 'A') ||\n" +
+                    "    setweight(to_tsvector('english', coalesce(Description, '')), 'B')\n" +
+                    ") stored;",
+            "create index recipes_search_index on recipes using gin (SearchVector);",
+    };
+
+    /**
+     * Trigram indexes that serve the {@code lower(Name) like '%kw%'} and {@code lower(Description) like '%kw%'}
+     * filters of {@code searchRecipes} as they are written, leading wildcard included.
+     */
+    private static final String[] TRIGRAM = {
+            "create index recipes_name_trgm_index on recipes using gin (lower(Name) gin_trgm_ops);",
+            "create index recipes_description_trgm_index on recipes using gin (lower(Description) gin_trgm_ops);",
+    };
+
+    private static final String[] TRIGGERS = {
+            "create or replace function follow_adder()\n" +
+                    "returns trigger as $$\n" +
+                    "begin\n" +
+                    "    update users set FollowerCount = FollowerCount + 1 where AuthorId = new.FolloweeId;\n" +
+                    "    update users set FolloweeCount = FolloweeCount + 1 where AuthorId = new.FollowerId;\n" +
+                    "    return new;\n" +
+                    "end;\n" +
+                    "$$ language plpgsql;",
+
+            "create or replace trigger follow_add_trigger\n" +
+                    "after insert on follow\n" +
+                    "for each row\n" +
+                    "execute function follow_adder();",
+
+            "create or replace function follow_delete()\n" +
+                    "returns trigger as $$\n" +
+                    "begin\n" +
+                    "    update users set FollowerCount = FollowerCount - 1 where AuthorId = old.FolloweeId;\n" +
+                    "    update users set FolloweeCount = FolloweeCount - 1 where AuthorId = old.FollowerId;\n" +
+                    "    return old;\n" +
+                    "end;\n" +
+                    "$$ language plpgsql;",
+
+            "create or replace trigger follow_delete_trigger\n" +
+                    "after delete on follow\n" +
+                    "for each row\n" +
+                    "execute function follow_delete();",
+    };
+
+    /**
+     * Removes duplicated rows from the edge tables so that their primary keys can be built.
+     * Only needed when the rows were written without a key to conflict on.
+     */
+    private static final String[] DEDUP_EDGES = {
+            "delete from follow a using follow b " +
+                    "where a.ctid < b.ctid and a.FollowerId = b.FollowerId and a.FolloweeId = b.FolloweeId;",
+            "delete from like_review a using like_review b " +
+                    "where a.ctid < b.ctid and a.AuthorId = b.AuthorId and a.LikeReviewId = b.LikeReviewId;",
+            "delete from ingredient a using ingredient b " +
+                    "where a.ctid < b.ctid and a.RecipeId = b.RecipeId and a.Ingredient = b.Ingredient;",
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * Creates the whole schema before any data is loaded.
+     */
+    public void createAll() {
+        createTables();
+        createConstraints();
+        createSearchIndexes();
+        createTriggers();
+    }
+
+    public void createTables() {
+        execute(TABLES);
+    }
+
+    public void createConstraints() {
+        execute(CONSTRAINTS);
+    }
+
+    /**
+     * Adds {@code recipes.SearchVector} and its GIN index, and the trigram indexes when {@code pg_trgm}
+     * can be enabled. On a loaded table this rewrites it once.
+     */
+    public void createSearchIndexes() {
+        execute(SEARCH);
+        if (enableTrigram()) {
+            execute(TRIGRAM);
+        }
+    }
+
+    /**
+     * Creates the {@code pg_trgm} extension on a connection of its own, so that a missing privilege
+     * does not abort the import transaction. The extension is trusted, so the database owner may create it.
+     */
+    private boolean enableTrigram() {
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("create extension if not exists pg_trgm;");
+            return true;
+        } catch (SQLException e) {
+            log.warn("pg_trgm is not available, keyword search falls back to sequential scans: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    public void createTriggers() {
+        execute(TRIGGERS);
+    }
+
+    public void dedupEdges() {
+        execute(DEDUP_EDGES);
+    }
+
+    /**
+     * Applies, in one statement, the counter increments that {@code follow_add_trigger}
+     * would have made had it existed while {@code follow} was loaded.
+     */
+    public void computeFollowCounts() {
+        jdbcTemplate.update(
+                "update users u\n" +
+                        "set FollowerCount = u.FollowerCount + c.followers,\n" +
+                        "    FolloweeCount = u.FolloweeCount + c.followees\n" +
+                        "from (\n" +
+                        "    select id, sum(followers) as followers, sum(followees) as followees\n" +
+                        "    from (select FolloweeId as id, 1 as followers, 0 as followees from follow\n" +
+                        "          union all\n" +
+                        "          select FollowerId, 0, 1 from follow) e\n" +
+                        "    group by id\n" +
+                        ") c\n" +
+                        "where u.AuthorId = c.id;"
+        );
+    }
+
+    /**
+     * Drops the imported tables again, used to leave the database empty after a failed import.
+     */
+    public void dropTables() {
+        jdbcTemplate.execute("drop table if exists like_review, reviews, ingredient, recipes, follow, users cascade;");
+    }
+
+    /**
+     * Refreshes planner statistics, the tables were empty when they were last looked at.
+     */
+    public void analyze() {
+        jdbcTemplate.execute("analyze users, follow, recipes, ingredient, reviews, like_review;");
+    }
+
+    private void execute(String[] sqls) {
+        for (String sql : sqls) {
+            jdbcTemplate.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package io.sustc.service.impl.importer;
+
+import io.sustc.dto.ImportMode;
+import io.sustc.dto.RecipeRecord;
+import io.sustc.dto.ReviewRecord;
+import io.sustc.dto.UserRecord;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Writes the import records into one table at a time.
+ * <p>
+ * Every method runs on the given connection and leaves transaction handling to the caller.
+ * The returned value is the number of rows written.
+ */
+public interface ImportStrategy {
+
+    ImportMode mode();
+
+    /**
+     * Whether the edge tables ({@code ingredient}, {@code like_review}, {@code follow})
+     * come out duplicate-free without relying on their primary keys.
+     * When {@code false}, a load into bare tables has to dedup them before the keys are built.
+     */
+    boolean distinctEdges();
+
+    long writeUsers(Connection conn, Iterable<UserRecord> users) throws SQLException;
+
+    long writeRecipes(Connection conn, Iterable<RecipeRecord> recipes) throws SQLException;
+
+    /**
+     * Explodes {@link RecipeRecord#getRecipeIngredientParts()} into the {@code ingredient} table.
+     */
+    long writeIngredients(Connection conn, Iterable<RecipeRecord> recipes) throws SQLException;
+
+    long writeReviews(Connection conn, Iterable<ReviewRecord> reviews) throws SQLException;
+
+    /**
+     * Writes batches of {@code (AuthorId, LikeReviewId)} pairs, as prepared by {@link ImportRecords#prepareLikes},
+     * into the {@code like_review} table. The pairs are distinct within and across batches.
+     * Batches may still be in preparation while earlier ones are written.
+     */
+    long writeLikePairs(Connection conn, Iterable<LongPairBuffer> likes) throws SQLException;
+
+    /**
+     * Explodes {@link ReviewRecord#getLikes()} into the {@code like_review} table.
+     */
+    default long writeLikes(Connection conn, Iterable<ReviewRecord> reviews) throws SQLException {
+        return writeLikePairs(conn, ImportRecords.prepareLikes(reviews));
+    }
+
+    /**
+     * Writes batches of {@code (FollowerId, FolloweeId)} pairs, as prepared by {@link ImportRecords#prepareFollows},
+     * into the {@code follow} table. The pairs are distinct within and across batches.
+     */
+    long writeFollowPairs(Connection conn, Iterable<LongPairBuffer> follows) throws SQLException;
+
+    /**
+     * Builds the {@code follow} table from both {@link UserRecord#getFollowerUsers()}
+     * and {@link UserRecord#getFollowingUsers()}, skipping self-follows and duplicated edges.
+     */
+    default long writeFollows(Connection conn, Iterable<UserRecord> users) throws SQLException {
+        return writeFollowPairs(conn, ImportRecords.prepareFollows(users));
+    }
+}
@@ -0,0 +1,34 @@
+package io.sustc.service.impl.importer;
+
+import java.util.List;
+
+/**
+ * The imported tables, declared in an order that respects their dependencies.
+ */
+public enum ImportTable {
+
+    USERS,
+
+    RECIPES(USERS),
+
+    INGREDIENT(RECIPES),
+
+    REVIEWS(RECIPES),
+
+    LIKE_REVIEW(REVIEWS),
+
+    FOLLOW(USERS);
+
+    private final List<ImportTable> dependencies;
+
+    ImportTable(ImportTable... dependencies) {
+        this.dependencies = List.of(dependencies);
+    }
+
+    /**
+     * Tables that must be fully loaded and committed before this one may start.
+     */
+    public List<ImportTable> getDependencies() {
+        return dependencies;
+    }
+}
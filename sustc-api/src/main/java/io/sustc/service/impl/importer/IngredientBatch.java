@@ -0,0 +1,42 @@
+package io.sustc.service.impl.importer;
+
+import java.util.Arrays;
+
+/**
+ * Cleaned {@code (RecipeId, Ingredient)} rows of a slice of recipes, kept column by column.
+ */
+public final class IngredientBatch {
+
+    private long[] recipeIds;
+
+    private String[] ingredients;
+
+    private int size;
+
+    public IngredientBatch(int capacity) {
+        this.recipeIds = new long[Math.max(capacity, 16)];
+        this.ingredients = new String[recipeIds.length];
+    }
+
+    public void add(long recipeId, String ingredient) {
+        if (size == recipeIds.length) {
+            recipeIds = Arrays.copyOf(recipeIds, size * 2);
+            ingredients = Arrays.copyOf(ingredients, size * 2);
+        }
+        recipeIds[size] = recipeId;
+        ingredients[size] = ingredient;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long recipeId(int index) {
+        return recipeIds[index];
+    }
+
+    public String ingredient(int index) {
+        return ingredients[index];
+    }
+}
@@ -0,0 +1,222 @@
+package io.sustc.service.impl.importer;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of {@code (long, long)} pairs stored in packed {@code long[]} chunks.
+ * <p>
+ * Each chunk holds {@value #CHUNK_PAIRS} pairs interleaved as {@code first, second, first, second, ...},
+ * so a pair costs 16 bytes and growing never copies what is already stored.
+ * {@link #sortAndDedup()} orders the pairs by {@code first}, then {@code second}, in place
+ * and drops the repeated ones.
+ * <p>
+ * {@link #slice(int, int)} returns a read-only view sharing the same chunks. Not thread-safe.
+ */
+public final class LongPairBuffer {
+
+    private static final int CHUNK_SHIFT = 13;
+
+    private static final int CHUNK_PAIRS = 1 << CHUNK_SHIFT;
+
+    private static final int CHUNK_MASK = CHUNK_PAIRS - 1;
+
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private long[][] chunks;
+
+    private final int offset;
+
+    private int size;
+
+    private final boolean readOnly;
+
+    public LongPairBuffer() {
+        this.chunks = new long[4][];
+        this.offset = 0;
+        this.readOnly = false;
+    }
+
+    private LongPairBuffer(long[][] chunks, int offset, int size) {
+        this.chunks = chunks;
+        this.offset = offset;
+        this.size = size;
+        this.readOnly = true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void add(long first, long second) {
+        if (readOnly) throw new UnsupportedOperationException("slice is read-only");
+        int chunk = size >>> CHUNK_SHIFT;
+        if (chunk == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        if (chunks[chunk] == null) {
+            chunks[chunk] = new long[CHUNK_PAIRS * 2];
+        }
+        int at = (size & CHUNK_MASK) << 1;
+        chunks[chunk][at] = first;
+        chunks[chunk][at + 1] = second;
+        size++;
+    }
+
+    public long first(int index) {
+        int i = checkIndex(index) + offset;
+        return chunks[i >>> CHUNK_SHIFT][(i & CHUNK_MASK) << 1];
+    }
+
+    public long second(int index) {
+        int i = checkIndex(index) + offset;
+        return chunks[i >>> CHUNK_SHIFT][((i & CHUNK_MASK) << 1) + 1];
+    }
+
+    /**
+     * A read-only view of the pairs {@code [from, to)}. It reflects later sorting of this buffer,
+     * so only slice a buffer once it is final.
+     */
+    public LongPairBuffer slice(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("slice [" + from + ", " + to + ") of " + size);
+        }
+        return new LongPairBuffer(chunks, offset + from, to - from);
+    }
+
+    /**
+     * Sorts the pairs ascending and removes duplicates, without any extra allocation.
+     */
+    public void sortAndDedup() {
+        if (readOnly) throw new UnsupportedOperationException("slice is read-only");
+        if (size < 2) return;
+        int depthLimit = 2 * (32 - Integer.numberOfLeadingZeros(size));
+        quickSort(0, size - 1, depthLimit);
+
+        int kept = 1;
+        for (int i = 1; i < size; i++) {
+            if (compare(i, kept - 1) != 0) {
+                if (i != kept) set(kept, get1(i), get2(i));
+                kept++;
+            }
+        }
+        // Release the chunks no longer used
+        for (int c = ((kept - 1) >>> CHUNK_SHIFT) + 1; c < chunks.length && chunks[c] != null; c++) {
+            chunks[c] = null;
+        }
+        size = kept;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + " of " + size);
+        }
+        return index;
+    }
+
+    // Unchecked accessors used while sorting, this buffer is never a slice there
+
+    private long get1(int i) {
+        return chunks[i >>> CHUNK_SHIFT][(i & CHUNK_MASK) << 1];
+    }
+
+    private long get2(int i) {
+        return chunks[i >>> CHUNK_SHIFT][((i & CHUNK_MASK) << 1) + 1];
+    }
+
+    private void set(int i, long first, long second) {
+        long[] chunk = chunks[i >>> CHUNK_SHIFT];
+        int at = (i & CHUNK_MASK) << 1;
+        chunk[at] = first;
+        chunk[at + 1] = second;
+    }
+
+    private int compare(int i, int j) {
+        int c = Long.compare(get1(i), get1(j));
+        return c != 0 ? c : Long.compare(get2(i), get2(j));
+    }
+
+    private void swap(int i, int j) {
+        long a = get1(i), b = get2(i);
+        set(i, get1(j), get2(j));
+        set(j, a, b);
+    }
+
+    /**
+     * Median-of-three quicksort recursing only into the smaller side,
+     * falling back to heapsort once {@code depthLimit} is used up.
+     */
+    private void quickSort(int lo, int hi, int depthLimit) {
+        while (hi - lo >= INSERTION_SORT_THRESHOLD) {
+            if (depthLimit-- == 0) {
+                heapSort(lo, hi);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            if (compare(mid, lo) < 0) swap(mid, lo);
+            if (compare(hi, lo) < 0) swap(hi, lo);
+            if (compare(hi, mid) < 0) swap(hi, mid);
+            // pivot kept at hi - 1
+            swap(mid, hi - 1);
+            long p1 = get1(hi - 1), p2 = get2(hi - 1);
+            int i = lo, j = hi - 1;
+            while (true) {
+                while (compareTo(++i, p1, p2) < 0) ;
+                while (compareTo(--j, p1, p2) > 0) ;
+                if (i >= j) break;
+                swap(i, j);
+            }
+            swap(i, hi - 1);
+            if (i - lo < hi - i) {
+                quickSort(lo, i - 1, depthLimit);
+                lo = i + 1;
+            } else {
+                quickSort(i + 1, hi, depthLimit);
+                hi = i - 1;
+            }
+        }
+        insertionSort(lo, hi);
+    }
+
+    private int compareTo(int i, long p1, long p2) {
+        int c = Long.compare(get1(i), p1);
+        return c != 0 ? c : Long.compare(get2(i), p2);
+    }
+
+    private void insertionSort(int lo, int hi) {
+        for (int i = lo + 1; i <= hi; i++) {
+            long a = get1(i), b = get2(i);
+            int j = i - 1;
+            while (j >= lo && compareTo(j, a, b) > 0) {
+                set(j + 1, get1(j), get2(j));
+                j--;
+            }
+            set(j + 1, a, b);
+        }
+    }
+
+    private void heapSort(int lo, int hi) {
+        int n = hi - lo + 1;
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDown(lo, i, n);
+        }
+        for (int end = n - 1; end > 0; end--) {
+            swap(lo, lo + end);
+            siftDown(lo, 0, end);
+        }
+    }
+
+    private void siftDown(int lo, int node, int n) {
+        while (true) {
+            int child = 2 * node + 1;
+            if (child >= n) return;
+            if (child + 1 < n && compare(lo + child + 1, lo + child) > 0) child++;
+            if (compare(lo + node, lo + child) >= 0) return;
+            swap(lo + node, lo + child);
+            node = child;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package io.sustc.service.impl.importer;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Runs preprocessing tasks on the common fork-join pool while their results are consumed in order.
+ * <p>
+ * At most {@code window} tasks are queued or running ahead of the consumer, so the writer can send
+ * one batch while the next ones are still being prepared, without holding every batch at once.
+ * Iterating starts the tasks, so the pipeline can be iterated once only.
+ */
+final class PrepPipeline<T> implements Iterable<T> {
+
+    private final List<Supplier<T>> tasks;
+
+    private final int window;
+
+    private boolean started;
+
+    PrepPipeline(List<Supplier<T>> tasks, int window) {
+        this.tasks = tasks;
+        this.window = Math.max(1, window);
+    }
+
+    /**
+     * A window of twice the pool's parallelism keeps every worker busy while the writer drains.
+     */
+    static int defaultWindow() {
+        return 2 * ForkJoinPool.getCommonPoolParallelism();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        if (started) throw new IllegalStateException("pipeline already consumed");
+        started = true;
+        return new Iterator<>() {
+            private final Deque<CompletableFuture<T>> inFlight = new ArrayDeque<>();
+
+            private int submitted;
+
+            {
+                fill();
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !inFlight.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                CompletableFuture<T> head = inFlight.poll();
+                fill();
+                try {
+                    return head.join();
+                } catch (CompletionException e) {
+                    inFlight.forEach(f -> f.cancel(false));
+                    if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                    throw e;
+                }
+            }
+
+            private void fill() {
+                while (inFlight.size() < window && submitted < tasks.size()) {
+                    inFlight.add(CompletableFuture.supplyAsync(tasks.get(submitted++), ForkJoinPool.commonPool()));
+                }
+            }
+        };
+    }
+}
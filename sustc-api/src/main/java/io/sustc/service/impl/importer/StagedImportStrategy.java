@@ -0,0 +1,251 @@
+package io.sustc.service.impl.importer;
+
+import io.sustc.dto.ImportMode;
+import io.sustc.dto.RecipeRecord;
+import io.sustc.dto.ReviewRecord;
+import io.sustc.dto.UserRecord;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copies the records as they are into {@code UNLOGGED} staging tables and lets PostgreSQL clean and
+ * move them into the real tables, one {@code INSERT ... SELECT} per table.
+ * <p>
+ * The row-level cleanup of {@link ImportRecords} happens in SQL here: gender normalisation,
+ * ingredient trimming and dedup, self-follow filtering and edge dedup. The staging writes skip the WAL,
+ * and each staging table lives only within the transaction of its load, under a name of its own,
+ * so loads on several connections never share one.
+ * <p>
+ * Rows of the serial tables are numbered while staged and inserted in that order,
+ * so the generated ids follow the record order as with the other strategies.
+ */
+@Component
+public class StagedImportStrategy implements ImportStrategy {
+
+    private static final AtomicLong STAGE_ID = new AtomicLong();
+
+    /**
+     * Strips from ingredient parts what {@link String#trim()} strips, every character up to U+0020.
+     * Text values cannot contain U+0000, so the range starts at U+0001.
+     */
+    private static final String TRIM_PATTERN = "'^[\\x01-\\x20]+|[\\x01-\\x20]+$'";
+
+    @Override
+    public ImportMode mode() {
+        return ImportMode.STAGED;
+    }
+
+    @Override
+    public boolean distinctEdges() {
+        return true;
+    }
+
+    @Override
+    public long writeUsers(Connection conn, Iterable<UserRecord> users) throws SQLException {
+        String stage = createStage(conn, "users",
+                "Ord bigserial, AuthorName varchar, Gender varchar, Age int, FollowerCount bigint, FolloweeCount bigint, " +
+                        "Password varchar, Is_Deleted boolean");
+        try (CopyRowWriter w = CopyRowWriter.open(conn,
+                "COPY " + stage + " (AuthorName, Gender, Age, FollowerCount, FolloweeCount, Password, Is_Deleted) FROM STDIN")) {
+            for (UserRecord u : users) {
+                w.text(u.getAuthorName())
+                        .text(u.getGender())
+                        .int32(u.getAge())
+                        .int64(u.getFollowers())
+                        .int64(u.getFollowing())
+                        .text(u.getPassword())
+                        .bool(u.isDeleted())
+                        .endRow();
+            }
+            w.finish();
+        }
+        return merge(conn, stage,
+                "insert into users (AuthorName, Gender, Age, FollowerCount, FolloweeCount, Password, Is_Deleted)\n" +
+                        "select AuthorName,\n" +
+                        "       case upper(Gender) when 'MALE' then 'Male' when 'FEMALE' then 'Female' else Gender end,\n" +
+                        "       Age, FollowerCount, FolloweeCount, Password, Is_Deleted\n" +
+                        "from (select * from " + stage + " order by Ord) s;");
+    }
+
+    @Override
+    public long writeRecipes(Connection conn, Iterable<RecipeRecord> recipes) throws SQLException {
+        String columns = "Name, AuthorId, CookTime, PrepTime, TotalTime, DatePublished, Description, RecipeCategory, " +
+                "Calories, FatContent, SaturatedFatContent, CholesterolContent, SodiumContent, CarbohydrateContent, " +
+                "FiberContent, SugarContent, ProteinContent, RecipeServings, RecipeYield, AggregatedRating, ReviewCount";
+        String stage = createStage(conn, "recipes",
+                "Ord bigserial, Name varchar, AuthorId bigint, CookTime varchar, PrepTime varchar, TotalTime varchar, " +
+                        "DatePublished timestamp, Description varchar, RecipeCategory varchar, Calories float, FatContent float, " +
+                        "SaturatedFatContent float, CholesterolContent float, SodiumContent float, CarbohydrateContent float, " +
+                        "FiberContent float, SugarContent float, ProteinContent float, RecipeServings int, RecipeYield varchar, " +
+                        "AggregatedRating float, ReviewCount int");
+        try (CopyRowWriter w = CopyRowWriter.open(conn, "COPY " + stage + " (" + columns + ") FROM STDIN")) {
+            for (RecipeRecord r : recipes) {
+                w.text(r.getName())
+                        .int64(r.getAuthorId())
+                        .text(r.getCookTime())
+                        .text(r.getPrepTime())
+                        .text(r.getTotalTime())
+                        .timestamp(r.getDatePublished())
+                        .text(r.getDescription())
+                        .text(r.getRecipeCategory())
+                        .float4(r.getCalories())
+                        .float4(r.getFatContent())
+                        .float4(r.getSaturatedFatContent())
+                        .float4(r.getCholesterolContent())
+                        .float4(r.getSodiumContent())
+                        .float4(r.getCarbohydrateContent())
+                        .float4(r.getFiberContent())
+                        .float4(r.getSugarContent())
+                        .float4(r.getProteinContent())
+                        .int32(r.getRecipeServings())
+                        .text(r.getRecipeYield())
+                        .float4(r.getAggregatedRating())
+                        .int32(r.getReviewCount())
+                        .endRow();
+            }
+            w.finish();
+        }
+        return merge(conn, stage,
+                "insert into recipes (" + columns + ")\n" +
+                        "select " + columns + "\n" +
+                        "from (select * from " + stage + " order by Ord) s;");
+    }
+
+    @Override
+    public long writeIngredients(Connection conn, Iterable<RecipeRecord> recipes) throws SQLException {
+        String stage = createStage(conn, "ingredient", "RecipeId bigint, Part varchar");
+        try (CopyRowWriter w = CopyRowWriter.open(conn, "COPY " + stage + " (RecipeId, Part) FROM STDIN")) {
+            for (RecipeRecord r : recipes) {
+                String[] parts = r.getRecipeIngredientParts();
+                if (parts == null) continue;
+                for (String p : parts) {
+                    w.int64(r.getRecipeId()).text(p).endRow();
+                }
+            }
+            w.finish();
+        }
+        return merge(conn, stage,
+                "insert into ingredient (RecipeId, Ingredient)\n" +
+                        "select distinct RecipeId, Ingredient\n" +
+                        "from (select RecipeId, regexp_replace(Part, " + TRIM_PATTERN + ", '', 'g') as Ingredient\n" +
+                        "      from " + stage + ") p\n" +
+                        "where Ingredient <> '';");
+    }
+
+    @Override
+    public long writeReviews(Connection conn, Iterable<ReviewRecord> reviews) throws SQLException {
+        String stage = createStage(conn, "reviews",
+                "Ord bigserial, RecipeId bigint, AuthorId bigint, Rating float, Review varchar, " +
+                        "DateSubmitted timestamp, DateModified timestamp");
+        try (CopyRowWriter w = CopyRowWriter.open(conn,
+                "COPY " + stage + " (RecipeId, AuthorId, Rating, Review, DateSubmitted, DateModified) FROM STDIN")) {
+            for (ReviewRecord rv : reviews) {
+                w.int64(rv.getRecipeId())
+                        .int64(rv.getAuthorId())
+                        .float4(rv.getRating())
+                        .text(rv.getReview())
+                        .timestamp(rv.getDateSubmitted())
+                        .timestamp(rv.getDateModified())
+                        .endRow();
+            }
+            w.finish();
+        }
+        return merge(conn, stage,
+                "insert into reviews (RecipeId, AuthorId, Rating, Review, DateSubmitted, DateModified)\n" +
+                        "select RecipeId, AuthorId, Rating, Review, DateSubmitted, DateModified\n" +
+                        "from (select * from " + stage + " order by Ord) s;");
+    }
+
+    @Override
+    public long writeLikes(Connection conn, Iterable<ReviewRecord> reviews) throws SQLException {
+        String stage = createPairStage(conn, "like_review");
+        try (CopyRowWriter w = CopyRowWriter.open(conn, "COPY " + stage + " (A, B) FROM STDIN")) {
+            for (ReviewRecord rv : reviews) {
+                long[] likes = rv.getLikes();
+                if (likes == null) continue;
+                for (long liker : likes) {
+                    w.int64(liker).int64(rv.getReviewId()).endRow();
+                }
+            }
+            w.finish();
+        }
+        return mergePairs(conn, stage, "like_review (AuthorId, LikeReviewId)", false);
+    }
+
+    @Override
+    public long writeLikePairs(Connection conn, Iterable<LongPairBuffer> likes) throws SQLException {
+        return writePairs(conn, "like_review", "like_review (AuthorId, LikeReviewId)", likes);
+    }
+
+    @Override
+    public long writeFollows(Connection conn, Iterable<UserRecord> users) throws SQLException {
+        String stage = createPairStage(conn, "follow");
+        try (CopyRowWriter w = CopyRowWriter.open(conn, "COPY " + stage + " (A, B) FROM STDIN")) {
+            for (UserRecord u : users) {
+                long author = u.getAuthorId();
+                long[] followers = u.getFollowerUsers();
+                if (followers != null) {
+                    for (long f : followers) {
+                        w.int64(f).int64(author).endRow();
+                    }
+                }
+                long[] following = u.getFollowingUsers();
+                if (following != null) {
+                    for (long fo : following) {
+                        w.int64(author).int64(fo).endRow();
+                    }
+                }
+            }
+            w.finish();
+        }
+        return mergePairs(conn, stage, "follow (FollowerId, FolloweeId)", true);
+    }
+
+    @Override
+    public long writeFollowPairs(Connection conn, Iterable<LongPairBuffer> follows) throws SQLException {
+        return writePairs(conn, "follow", "follow (FollowerId, FolloweeId)", follows);
+    }
+
+    private static long writePairs(Connection conn, String table, String target, Iterable<LongPairBuffer> batches) throws SQLException {
+        String stage = createPairStage(conn, table);
+        try (CopyRowWriter w = CopyRowWriter.open(conn, "COPY " + stage + " (A, B) FROM STDIN")) {
+            for (LongPairBuffer pairs : batches) {
+                for (int i = 0; i < pairs.size(); i++) {
+                    w.int64(pairs.first(i)).int64(pairs.second(i)).endRow();
+                }
+            }
+            w.finish();
+        }
+        return mergePairs(conn, stage, target, false);
+    }
+
+    private static String createPairStage(Connection conn, String table) throws SQLException {
+        return createStage(conn, table, "A bigint, B bigint");
+    }
+
+    private static long mergePairs(Connection conn, String stage, String target, boolean skipSelfEdges) throws SQLException {
+        return merge(conn, stage,
+                "insert into " + target + "\n" +
+                        "select distinct A, B from " + stage + (skipSelfEdges ? " where A <> B" : "") + ";");
+    }
+
+    private static String createStage(Connection conn, String table, String columns) throws SQLException {
+        String stage = "import_stage_" + table + "_" + STAGE_ID.incrementAndGet();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("create unlogged table " + stage + " (" + columns + ");");
+        }
+        return stage;
+    }
+
+    private static long merge(Connection conn, String stage, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            long rows = stmt.executeUpdate(sql);
+            stmt.execute("drop table " + stage + ";");
+            return rows;
+        }
+    }
+}
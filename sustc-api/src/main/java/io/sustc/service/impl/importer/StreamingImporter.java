@@ -0,0 +1,209 @@
+package io.sustc.service.impl.importer;
+
+import io.sustc.dto.RecipeRecord;
+import io.sustc.dto.ReviewRecord;
+import io.sustc.dto.UserRecord;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports records from one-shot iterators while they are being produced.
+ * <p>
+ * Each source is read exactly once. While its records are written into the main table on one
+ * connection, they are also handed through a small bounded queue to a second connection that
+ * writes the derived edge table ({@code follow}, {@code ingredient} or {@code like_review}).
+ * Only {@value #QUEUE_CAPACITY} records are held in memory at a time, whatever the size of the source;
+ * follow and like edges are kept until the end of their source so that they can be deduplicated,
+ * as packed pairs in a {@link LongPairBuffer} or, with {@link StagedImportStrategy}, in a staging table.
+ * <p>
+ * The two connections cannot see each other's rows before commit, so the tables must not have
+ * foreign keys yet, i.e. only {@link ImportSchema#createTables()} may have run.
+ */
+@Component
+@Slf4j
+public class StreamingImporter {
+
+    private static final int QUEUE_CAPACITY = 1024;
+
+    private static final Object END = new Object();
+
+    @Autowired
+    private DataSource dataSource;
+
+    @FunctionalInterface
+    private interface TableWriter<T> {
+        long write(Connection conn, Iterable<T> records) throws SQLException;
+    }
+
+    /**
+     * Drains the sources in dependency order: users, then recipes, then reviews.
+     */
+    public void load(ImportStrategy strategy,
+                     ImportMetrics metrics,
+                     Iterator<UserRecord> users,
+                     Iterator<RecipeRecord> recipes,
+                     Iterator<ReviewRecord> reviews) {
+        @SuppressWarnings("AlibabaThreadPoolCreation")
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "import-stream-edges");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            long[] rows = tee(users, ImportTable.USERS, strategy::writeUsers,
+                    ImportTable.FOLLOW, strategy::writeFollows, metrics, executor);
+            log.debug("Streamed {} users and {} follows", rows[0], rows[1]);
+            rows = tee(recipes, ImportTable.RECIPES, strategy::writeRecipes,
+                    ImportTable.INGREDIENT, strategy::writeIngredients, metrics, executor);
+            log.debug("Streamed {} recipes and {} ingredients", rows[0], rows[1]);
+            rows = tee(reviews, ImportTable.REVIEWS, strategy::writeReviews,
+                    ImportTable.LIKE_REVIEW, strategy::writeLikes, metrics, executor);
+            log.debug("Streamed {} reviews and {} likes", rows[0], rows[1]);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Writes {@code source} with {@code main} while {@code edges} consumes the same records on another connection.
+     * Both sides commit only after both have finished.
+     */
+    private <T> long[] tee(Iterator<T> source,
+                           ImportTable mainTable, TableWriter<T> main,
+                           ImportTable edgeTable, TableWriter<T> edges,
+                           ImportMetrics metrics, ExecutorService executor) throws SQLException {
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        try (Connection mainConn = dataSource.getConnection();
+             Connection edgeConn = dataSource.getConnection()) {
+            mainConn.setAutoCommit(false);
+            edgeConn.setAutoCommit(false);
+            Future<Long> edgeRows = executor.submit(() -> metrics.measure(ImportMetrics.phaseName(edgeTable),
+                    () -> edges.write(edgeConn, () -> drain(queue))));
+            try {
+                Tee<T> tee = new Tee<>(source, queue, edgeRows);
+                long mainRows = metrics.measure(ImportMetrics.phaseName(mainTable), () -> main.write(mainConn, () -> tee));
+                tee.end();
+                long[] rows = {mainRows, edgeRows.get()};
+                edgeConn.commit();
+                mainConn.commit();
+                return rows;
+            } catch (SQLException | RuntimeException | InterruptedException | ExecutionException e) {
+                if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+                Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                // A dead edge writer surfaces on this side as a failed put, report why it died instead
+                if (edgeRows.isDone() && !edgeRows.isCancelled() && !(e instanceof ExecutionException)) {
+                    try {
+                        edgeRows.get();
+                    } catch (ExecutionException edgeFailure) {
+                        cause = edgeFailure.getCause();
+                    } catch (InterruptedException ignored) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                edgeRows.cancel(true);
+                edgeConn.rollback();
+                mainConn.rollback();
+                if (cause instanceof SQLException) throw (SQLException) cause;
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                throw new RuntimeException(cause);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Iterator<T> drain(BlockingQueue<Object> queue) {
+        return new Iterator<>() {
+            private Object next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = queue.take();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrupted while waiting for records", e);
+                    }
+                }
+                return next != END;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                T record = (T) next;
+                next = null;
+                return record;
+            }
+        };
+    }
+
+    /**
+     * Passes every record read from the source on to the edge queue.
+     */
+    private static class Tee<T> implements Iterator<T> {
+
+        private final Iterator<T> source;
+
+        private final BlockingQueue<Object> queue;
+
+        private final Future<?> consumer;
+
+        private boolean ended;
+
+        Tee(Iterator<T> source, BlockingQueue<Object> queue, Future<?> consumer) {
+            this.source = source;
+            this.queue = queue;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return source.hasNext();
+        }
+
+        @Override
+        public T next() {
+            T record = source.next();
+            put(record);
+            return record;
+        }
+
+        void end() {
+            if (!ended) {
+                ended = true;
+                put(END);
+            }
+        }
+
+        private void put(Object item) {
+            try {
+                // Never block forever on a consumer that has already died
+                while (!queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                    if (consumer.isDone()) {
+                        throw new IllegalStateException("Edge writer stopped before the source was drained");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while queueing records", e);
+            }
+        }
+    }
+}
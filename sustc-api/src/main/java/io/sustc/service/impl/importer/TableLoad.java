@@ -0,0 +1,16 @@
+package io.sustc.service.impl.importer;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * One unit of work of an import: writes (part of) a table on the given connection.
+ */
+@FunctionalInterface
+public interface TableLoad {
+
+    /**
+     * @return the number of rows written
+     */
+    long load(Connection conn) throws SQLException;
+}
@@ -0,0 +1,98 @@
+package io.sustc.service.impl.search;
+
+import java.util.regex.Pattern;
+
+/**
+ * The {@code '%' || keyword || '%'} pattern of the SQL search, evaluated in Java with PostgreSQL's
+ * {@code LIKE} rules: {@code %} matches any run of characters, {@code _} exactly one,
+ * and a backslash makes the next character literal.
+ */
+final class LikePattern {
+
+    /**
+     * The unescaped keyword when it contains no wildcard, so that a plain {@code contains} decides a match.
+     */
+    private final String literal;
+
+    private final Pattern regex;
+
+    private final String longestWord;
+
+    private LikePattern(String literal, Pattern regex, String longestWord) {
+        this.literal = literal;
+        this.regex = regex;
+        this.longestWord = longestWord;
+    }
+
+    /**
+     * @param keyword the keyword as the SQL search puts it between the two {@code %}
+     */
+    static LikePattern compile(String keyword) {
+        String pattern = "%" + keyword + "%";
+        StringBuilder regex = new StringBuilder();
+        StringBuilder segment = new StringBuilder();
+        String longestWord = "";
+        String lastSegment = "";
+        int wildcards = 0;
+        boolean innerWildcard = false;
+
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\\' && i + 1 < pattern.length()) {
+                segment.append(pattern.charAt(++i));
+                continue;
+            }
+            if (c == '%' || c == '_') {
+                lastSegment = segment.toString();
+                longestWord = longer(longestWord, longestWord(segment));
+                regex.append(Pattern.quote(lastSegment)).append(c == '%' ? ".*" : ".");
+                segment.setLength(0);
+                wildcards++;
+                // 首尾之外还有通配符
+                innerWildcard |= i != 0 && i != pattern.length() - 1;
+                continue;
+            }
+            segment.append(c);
+        }
+        longestWord = longer(longestWord, longestWord(segment));
+        regex.append(Pattern.quote(segment.toString()));
+
+        if (!innerWildcard && wildcards == 2) {
+            // 只有首尾的 %，等同于子串匹配
+            return new LikePattern(lastSegment, null, longestWord);
+        }
+        return new LikePattern(null, Pattern.compile(regex.toString(), Pattern.DOTALL), longestWord);
+    }
+
+    boolean matches(String text) {
+        if (text == null) return false;
+        return literal != null ? text.contains(literal) : regex.matcher(text).matches();
+    }
+
+    /**
+     * The longest run of letters and digits that any matching text must contain, or {@code ""}.
+     * Such a run lies inside one token of the text, which lets the index narrow the candidates.
+     */
+    String longestWord() {
+        return longestWord;
+    }
+
+    private static String longestWord(CharSequence s) {
+        String best = "";
+        int start = -1;
+        for (int i = 0; i <= s.length(); i++) {
+            boolean word = i < s.length() && Character.isLetterOrDigit(s.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                if (i - start > best.length()) best = s.subSequence(start, i).toString();
+                start = -1;
+            }
+        }
+        return best;
+    }
+
+    private static String longer(String a, String b) {
+        return b.length() > a.length() ? b : a;
+    }
+}
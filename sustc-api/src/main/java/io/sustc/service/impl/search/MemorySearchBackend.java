@@ -0,0 +1,68 @@
+package io.sustc.service.impl.search;
+
+import io.sustc.config.SearchConfig;
+import io.sustc.dto.PageResult;
+import io.sustc.dto.RecipeRecord;
+import io.sustc.service.impl.RecipeCache;
+import io.sustc.service.impl.RecipeDetailLoader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Answers searches from {@link RecipeSearchIndex} and fills the page through {@link RecipeCache},
+ * so a repeated search does not touch the database at all.
+ * <p>
+ * {@code sort=relevance} ranks with PostgreSQL's full-text search and is passed on to {@link SqlSearchBackend}.
+ */
+@Component
+public class MemorySearchBackend implements SearchBackend {
+
+    @Autowired
+    private RecipeSearchIndex recipeSearchIndex;
+
+    @Autowired
+    private SqlSearchBackend sqlSearchBackend;
+
+    @Autowired
+    private RecipeCache recipeCache;
+
+    @Autowired
+    private RecipeDetailLoader recipeDetailLoader;
+
+    @Override
+    public SearchConfig.Backend type() {
+        return SearchConfig.Backend.MEMORY;
+    }
+
+    @Override
+    public PageResult<RecipeRecord> search(String keyword, String category, Double minRating,
+                                           int page, int size, String sort) {
+        if (keyword != null && !keyword.trim().isEmpty() && "relevance".equals(sort)) {
+            return sqlSearchBackend.search(keyword, category, minRating, page, size, sort);
+        }
+
+        int offset = (page - 1) * size;
+        RecipeSearchIndex.Hits hits = recipeSearchIndex.search(keyword, category, minRating, sort, offset, size);
+
+        List<RecipeRecord> items = new ArrayList<>(hits.ids.length);
+        for (long id : hits.ids) {
+            RecipeRecord recipe = recipeCache.get(id, recipeDetailLoader::load);
+            // 并发删除的食谱跳过
+            if (recipe == null) continue;
+            // 与 SQL 实现一致：没有配料时为 null
+            String[] parts = recipe.getRecipeIngredientParts();
+            if (parts != null && parts.length == 0) recipe.setRecipeIngredientParts(null);
+            items.add(recipe);
+        }
+
+        return PageResult.<RecipeRecord>builder()
+                .items(items)
+                .page(page)
+                .size(size)
+                .total(hits.total)
+                .build();
+    }
+}
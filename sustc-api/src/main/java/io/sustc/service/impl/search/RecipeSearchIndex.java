@@ -0,0 +1,621 @@
+package io.sustc.service.impl.search;
+
+import io.sustc.config.SearchConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory copy of the searchable recipe columns, used by {@link MemorySearchBackend}.
+ * <p>
+ * Recipes are numbered by dense ordinals. Each lower-cased token of a name or description
+ * (a run of letters and digits) maps to the ordinals containing it, categories map to bitmaps,
+ * and one ordinal array per sort mode lists the recipes in that order; the rating order also
+ * answers {@code minRating} by binary search. A keyword first narrows the candidates through the
+ * tokens, then every candidate is checked against the exact {@code LIKE} pattern of the SQL search
+ * on the lower-cased name and description that the index keeps for this purpose.
+ * <p>
+ * The index is loaded after each import by {@link #reload()}, or on the first search.
+ * {@link #refresh(long)} re-reads one recipe once the current transaction commits; changed ratings only
+ * move the recipe within the sort orders, other changes give the recipe a new ordinal. A sort order only
+ * lists live ordinals; it is built on the first search that needs it and then kept up to date by removing
+ * and re-inserting the changed ordinal, and only in the orders whose key changed.
+ */
+@Component
+@Slf4j
+public class RecipeSearchIndex {
+
+    private static final String LOAD_SQL =
+            "select RecipeId, Name, Description, RecipeCategory, AggregatedRating, DatePublished, Calories from recipes";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SearchConfig searchConfig;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * {@code null} until built. Guarded by {@link #lock}.
+     */
+    private Index index;
+
+    /**
+     * Recipe ids of one page, in order, and the number of matches.
+     */
+    static class Hits {
+
+        final long[] ids;
+
+        final long total;
+
+        Hits(long[] ids, long total) {
+            this.ids = ids;
+            this.total = total;
+        }
+    }
+
+    /**
+     * Loads every recipe when the memory backend is selected, and drops the index otherwise.
+     */
+    public void reload() {
+        if (searchConfig.getBackend() != SearchConfig.Backend.MEMORY) {
+            clear();
+            return;
+        }
+        long start = System.nanoTime();
+        Index fresh = load();
+        lock.writeLock().lock();
+        try {
+            index = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Recipe search index loaded: recipes={}, tokens={}, time={} ms",
+                fresh.live(), fresh.postings.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            index = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Re-reads {@code recipeId} once the current transaction commits, or now outside of one.
+     * A recipe that no longer exists is removed. Does nothing while the index is not built.
+     */
+    public void refresh(long recipeId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refreshNow(recipeId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                refreshNow(recipeId);
+            }
+        });
+    }
+
+    Hits search(String keyword, String category, Double minRating, String sort, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            // 加载期间可能又被 clear()
+            while (index == null) {
+                lock.readLock().unlock();
+                try {
+                    ensureBuilt();
+                } finally {
+                    lock.readLock().lock();
+                }
+            }
+            return index.search(keyword, category, minRating, sort, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private synchronized void ensureBuilt() {
+        lock.readLock().lock();
+        try {
+            if (index != null) return;
+        } finally {
+            lock.readLock().unlock();
+        }
+        // 应用重启后库里已有数据，第一次查询时加载
+        Index fresh = load();
+        lock.writeLock().lock();
+        try {
+            if (index == null) index = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Index load() {
+        Index fresh = new Index();
+        jdbcTemplate.query(LOAD_SQL + " order by RecipeId", rs -> {
+            fresh.put(row(rs));
+        });
+        return fresh;
+    }
+
+    private void refreshNow(long recipeId) {
+        lock.readLock().lock();
+        try {
+            if (index == null) return;
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Row> rows = jdbcTemplate.query(LOAD_SQL + " where RecipeId = ?", (rs, i) -> row(rs), recipeId);
+        lock.writeLock().lock();
+        try {
+            if (index == null) return;
+            if (rows.isEmpty()) {
+                index.remove(recipeId);
+            } else {
+                index.put(rows.get(0));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static Row row(ResultSet rs) throws SQLException {
+        Row row = new Row();
+        row.id = rs.getLong("RecipeId");
+        row.name = lower(rs.getString("Name"));
+        row.description = lower(rs.getString("Description"));
+        row.category = rs.getString("RecipeCategory");
+        double rating = rs.getDouble("AggregatedRating");
+        row.hasRating = !rs.wasNull();
+        row.rating = rating;
+        Timestamp published = rs.getTimestamp("DatePublished");
+        row.hasDate = published != null;
+        row.date = published == null ? 0 : micros(published);
+        double calories = rs.getDouble("Calories");
+        row.hasCalories = !rs.wasNull();
+        row.calories = calories;
+        return row;
+    }
+
+    private static String lower(String s) {
+        return s == null ? null : s.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * PostgreSQL keeps timestamps to the microsecond.
+     */
+    private static long micros(Timestamp ts) {
+        return Math.floorDiv(ts.getTime(), 1000) * 1_000_000 + ts.getNanos() / 1000;
+    }
+
+    private static class Row {
+
+        long id;
+
+        String name;
+
+        String description;
+
+        String category;
+
+        boolean hasRating;
+
+        double rating;
+
+        boolean hasDate;
+
+        long date;
+
+        boolean hasCalories;
+
+        double calories;
+    }
+
+    /**
+     * Growable array of ordinals. Postings are only ever appended to, so they stay sorted by ordinal;
+     * sort orders also insert and remove in the middle.
+     */
+    private static class IntList {
+
+        int[] values;
+
+        int size;
+
+        IntList() {
+            this(new int[4], 0);
+        }
+
+        IntList(int[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
+
+        void add(int value) {
+            insert(size, value);
+        }
+
+        void insert(int index, int value) {
+            if (size == values.length) values = Arrays.copyOf(values, Math.max(4, size * 2));
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+        }
+
+        void removeAt(int index) {
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size--;
+        }
+    }
+
+    private static class Index {
+
+        private static final int BY_ID = 0;
+
+        private static final int BY_RATING = 1;
+
+        private static final int BY_DATE = 2;
+
+        private static final int BY_CALORIES = 3;
+
+        private int size;
+
+        private long[] ids = new long[1024];
+
+        private String[] names = new String[1024];
+
+        private String[] descriptions = new String[1024];
+
+        private int[] categories = new int[1024];
+
+        private double[] ratings = new double[1024];
+
+        private long[] dates = new long[1024];
+
+        private double[] calories = new double[1024];
+
+        private final BitSet alive = new BitSet();
+
+        private final BitSet hasRating = new BitSet();
+
+        private final BitSet hasDate = new BitSet();
+
+        private final BitSet hasCalories = new BitSet();
+
+        private final Map<Long, Integer> ordinals = new HashMap<>();
+
+        private final Map<String, IntList> postings = new HashMap<>();
+
+        private final Map<String, Integer> categoryIds = new HashMap<>();
+
+        private final List<BitSet> categoryDocs = new ArrayList<>();
+
+        /**
+         * Live ordinals per sort mode, {@code null} until a search needs them. Built under the read lock,
+         * hence the synchronization on the index; changes repair them under the write lock.
+         */
+        private final IntList[] orders = new IntList[4];
+
+        int live() {
+            return alive.cardinality();
+        }
+
+        void put(Row row) {
+            Integer ordinal = ordinals.get(row.id);
+            if (ordinal != null
+                    && Objects.equals(names[ordinal], row.name)
+                    && Objects.equals(descriptions[ordinal], row.description)) {
+                // 文本没变，只更新列值，并在键变了的排序里挪动这一项
+                boolean rating = hasRating.get(ordinal) != row.hasRating
+                        || Double.compare(ratings[ordinal], row.rating) != 0;
+                boolean date = hasDate.get(ordinal) != row.hasDate || dates[ordinal] != row.date;
+                boolean calorie = hasCalories.get(ordinal) != row.hasCalories
+                        || Double.compare(calories[ordinal], row.calories) != 0;
+                synchronized (this) {
+                    // 先按旧值找到位置移除，再按新值插回
+                    if (rating) unlink(BY_RATING, ordinal);
+                    if (date) unlink(BY_DATE, ordinal);
+                    if (calorie) unlink(BY_CALORIES, ordinal);
+                    setColumns(ordinal, row);
+                    if (rating) link(BY_RATING, ordinal);
+                    if (date) link(BY_DATE, ordinal);
+                    if (calorie) link(BY_CALORIES, ordinal);
+                }
+                return;
+            }
+            if (ordinal != null) remove(row.id);
+            append(row);
+        }
+
+        void remove(long recipeId) {
+            Integer ordinal = ordinals.remove(recipeId);
+            if (ordinal != null) {
+                alive.clear(ordinal);
+                synchronized (this) {
+                    for (int mode = 0; mode < orders.length; mode++) {
+                        unlink(mode, ordinal);
+                    }
+                }
+            }
+        }
+
+        private void append(Row row) {
+            if (size == ids.length) grow();
+            int ordinal = size++;
+            ids[ordinal] = row.id;
+            names[ordinal] = row.name;
+            descriptions[ordinal] = row.description;
+            categories[ordinal] = -1;
+            setColumns(ordinal, row);
+            alive.set(ordinal);
+            ordinals.put(row.id, ordinal);
+
+            Set<String> tokens = new HashSet<>();
+            tokenize(row.name, tokens);
+            tokenize(row.description, tokens);
+            for (String token : tokens) {
+                postings.computeIfAbsent(token, t -> new IntList()).add(ordinal);
+            }
+            synchronized (this) {
+                for (int mode = 0; mode < orders.length; mode++) {
+                    link(mode, ordinal);
+                }
+            }
+        }
+
+        /**
+         * Inserts {@code ordinal} into a built sort order at the position of its current column values.
+         */
+        private void link(int mode, int ordinal) {
+            IntList order = orders[mode];
+            if (order == null) return;
+            order.insert(position(mode, order, ordinal), ordinal);
+        }
+
+        /**
+         * Removes {@code ordinal} from a built sort order; its column values must be the ones it was inserted with.
+         */
+        private void unlink(int mode, int ordinal) {
+            IntList order = orders[mode];
+            if (order == null) return;
+            int index = position(mode, order, ordinal);
+            if (index < order.size && order.values[index] == ordinal) order.removeAt(index);
+        }
+
+        /**
+         * First index of {@code order} not before {@code ordinal}. Live recipes have distinct ids,
+         * so the order is total and this is the ordinal's own index when it is listed.
+         */
+        private int position(int mode, IntList order, int ordinal) {
+            int lo = 0, hi = order.size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (compare(mode, order.values[mid], ordinal) < 0) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        private void setColumns(int ordinal, Row row) {
+            if (categories[ordinal] >= 0) {
+                categoryDocs.get(categories[ordinal]).clear(ordinal);
+            }
+            if (row.category == null) {
+                categories[ordinal] = -1;
+            } else {
+                int category = categoryIds.computeIfAbsent(row.category, c -> {
+                    categoryDocs.add(new BitSet());
+                    return categoryDocs.size() - 1;
+                });
+                categories[ordinal] = category;
+                categoryDocs.get(category).set(ordinal);
+            }
+            ratings[ordinal] = row.rating;
+            hasRating.set(ordinal, row.hasRating);
+            dates[ordinal] = row.date;
+            hasDate.set(ordinal, row.hasDate);
+            calories[ordinal] = row.calories;
+            hasCalories.set(ordinal, row.hasCalories);
+        }
+
+        private void grow() {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            names = Arrays.copyOf(names, capacity);
+            descriptions = Arrays.copyOf(descriptions, capacity);
+            categories = Arrays.copyOf(categories, capacity);
+            ratings = Arrays.copyOf(ratings, capacity);
+            dates = Arrays.copyOf(dates, capacity);
+            calories = Arrays.copyOf(calories, capacity);
+        }
+
+        Hits search(String keyword, String category, Double minRating, String sort, int offset, int limit) {
+            BitSet match = (BitSet) alive.clone();
+            if (category != null && !category.trim().isEmpty()) {
+                Integer id = categoryIds.get(category);
+                if (id == null) {
+                    return new Hits(new long[0], 0);
+                }
+                match.and(categoryDocs.get(id));
+            }
+            if (minRating != null) {
+                match.and(ratingAtLeast(minRating));
+            }
+            if (keyword != null && !keyword.trim().isEmpty()) {
+                // 与 SQL 实现相同的小写方式
+                LikePattern pattern = LikePattern.compile(keyword.trim().toLowerCase());
+                BitSet candidates = candidates(pattern.longestWord());
+                if (candidates != null) match.and(candidates);
+                for (int i = match.nextSetBit(0); i >= 0; i = match.nextSetBit(i + 1)) {
+                    if (!pattern.matches(names[i]) && !pattern.matches(descriptions[i])) {
+                        match.clear(i);
+                    }
+                }
+            }
+
+            long total = match.cardinality();
+            IntList order = order(mode(sort));
+            long[] page = new long[(int) Math.max(0, Math.min(limit, total - Math.max(offset, 0)))];
+            int found = 0;
+            int skipped = 0;
+            for (int i = 0; i < order.size && found < page.length; i++) {
+                int ordinal = order.values[i];
+                if (!match.get(ordinal)) continue;
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    page[found++] = ids[ordinal];
+                }
+            }
+            return new Hits(page, total);
+        }
+
+        /**
+         * Union of the postings of every token containing {@code word}; {@code null} means no restriction.
+         */
+        private BitSet candidates(String word) {
+            if (word.isEmpty()) return null;
+            BitSet candidates = new BitSet(size);
+            postings.forEach((token, ordinals) -> {
+                if (token.contains(word)) {
+                    for (int i = 0; i < ordinals.size; i++) {
+                        candidates.set(ordinals.values[i]);
+                    }
+                }
+            });
+            return candidates;
+        }
+
+        /**
+         * Recipes whose rating is {@code >= minRating}: a prefix of the rating order.
+         */
+        private BitSet ratingAtLeast(double minRating) {
+            IntList order = order(BY_RATING);
+            // 有评分的排在前面，按评分降序
+            int lo = 0, hi = order.size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                int ordinal = order.values[mid];
+                if (hasRating.get(ordinal) && ratings[ordinal] >= minRating) lo = mid + 1;
+                else hi = mid;
+            }
+            BitSet result = new BitSet(size);
+            for (int i = 0; i < lo; i++) {
+                result.set(order.values[i]);
+            }
+            return result;
+        }
+
+        private static int mode(String sort) {
+            String mode = sort == null ? "" : sort;
+            switch (mode) {
+                case "rating_desc":
+                    return BY_RATING;
+                case "date_desc":
+                    return BY_DATE;
+                case "calories_asc":
+                    return BY_CALORIES;
+                default:
+                    return BY_ID;
+            }
+        }
+
+        /**
+         * Live ordinals in the order of {@code mode}, built on first use.
+         */
+        private synchronized IntList order(int mode) {
+            if (orders[mode] == null) {
+                int[] sorted = new int[alive.cardinality()];
+                int n = 0;
+                for (int i = alive.nextSetBit(0); i >= 0; i = alive.nextSetBit(i + 1)) {
+                    sorted[n++] = i;
+                }
+                mergeSort(mode, sorted, new int[n], 0, n);
+                orders[mode] = new IntList(sorted, n);
+            }
+            return orders[mode];
+        }
+
+        /**
+         * Compares two ordinals in the order of {@code mode}. Recipes without the sort key go last,
+         * and ties break by id as in the SQL backend.
+         */
+        private int compare(int mode, int a, int b) {
+            int c;
+            switch (mode) {
+                case BY_RATING:
+                    c = Boolean.compare(!hasRating.get(a), !hasRating.get(b));
+                    if (c == 0) c = Double.compare(ratings[b], ratings[a]);
+                    break;
+                case BY_DATE:
+                    c = Boolean.compare(!hasDate.get(a), !hasDate.get(b));
+                    if (c == 0) c = Long.compare(dates[b], dates[a]);
+                    break;
+                case BY_CALORIES:
+                    c = Boolean.compare(!hasCalories.get(a), !hasCalories.get(b));
+                    if (c == 0) c = Double.compare(calories[a], calories[b]);
+                    break;
+                default:
+                    return Long.compare(ids[a], ids[b]);
+            }
+            return c != 0 ? c : Long.compare(ids[b], ids[a]);
+        }
+
+        /**
+         * Stable merge sort of {@code values[from, to)} on primitive ordinals, {@code buffer} as scratch space.
+         */
+        private void mergeSort(int mode, int[] values, int[] buffer, int from, int to) {
+            if (to - from < 2) return;
+            int mid = (from + to) >>> 1;
+            mergeSort(mode, values, buffer, from, mid);
+            mergeSort(mode, values, buffer, mid, to);
+            if (compare(mode, values[mid - 1], values[mid]) <= 0) return;
+            System.arraycopy(values, from, buffer, from, to - from);
+            for (int i = from, j = mid, k = from; k < to; k++) {
+                if (j >= to || i < mid && compare(mode, buffer[i], buffer[j]) <= 0) {
+                    values[k] = buffer[i++];
+                } else {
+                    values[k] = buffer[j++];
+                }
+            }
+        }
+
+        private static void tokenize(String text, Set<String> tokens) {
+            if (text == null) return;
+            int start = -1;
+            for (int i = 0; i <= text.length(); i++) {
+                boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+                if (word && start < 0) {
+                    start = i;
+                } else if (!word && start >= 0) {
+                    tokens.add(text.substring(start, i));
+                    start = -1;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package io.sustc.service.impl.search;
+
+import io.sustc.config.SearchConfig;
+import io.sustc.dto.PageResult;
+import io.sustc.dto.RecipeRecord;
+
+/**
+ * Answers {@code RecipeService#searchRecipes} once its arguments are validated.
+ * <p>
+ * Every backend returns the same rows in the same order, so they can be swapped with
+ * {@code sustc.search.backend} without clients noticing.
+ */
+public interface SearchBackend {
+
+    SearchConfig.Backend type();
+
+    /**
+     * @param page 1-based, already checked to be positive
+     * @param size already checked to be positive
+     */
+    PageResult<RecipeRecord> search(String keyword, String category, Double minRating, int page, int size, String sort);
+}
@@ -0,0 +1,188 @@
+package io.sustc.service.impl.search;
+
+import io.sustc.config.SearchConfig;
+import io.sustc.dto.PageResult;
+import io.sustc.dto.RecipeRecord;
+import io.sustc.service.impl.RecipeDetailLoader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Answers searches with one query for the page and one for the total, filtering in PostgreSQL.
+ */
+@Component
+public class SqlSearchBackend implements SearchBackend {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public SearchConfig.Backend type() {
+        return SearchConfig.Backend.SQL;
+    }
+
+    @Override
+    public PageResult<RecipeRecord> search(String keyword, String category, Double minRating,
+                                           int page, int size, String sort) {
+        StringBuilder where = new StringBuilder(" WHERE 1=1 ");
+        List<Object> params = new ArrayList<>();
+        boolean hasKeyword = keyword != null && !keyword.trim().isEmpty();
+        boolean byRelevance = hasKeyword && "relevance".equals(sort);
+
+        if (byRelevance) {
+            // 全文检索走 recipes_search_index，按词干匹配而不是子串
+            where.append(" AND r.SearchVector @@ websearch_to_tsquery('english', ?) ");
+            params.add(keyword.trim());
+        } else if (hasKeyword) {
+            // 子串匹配，由 recipes_name_trgm_index 和 recipes_description_trgm_index 支持；表达式须与索引一致
+            where.append(" AND (LOWER(r.Name) LIKE ? OR LOWER(r.Description) LIKE ?) ");
+            String kw = "%" + keyword.trim().toLowerCase() + "%";
+            params.add(kw);
+            params.add(kw);
+        }
+        if (category != null && !category.trim().isEmpty()) {
+            where.append(" AND r.RecipeCategory = ? ");
+            params.add(category);
+        }
+        if (minRating != null) {
+            where.append(" AND r.AggregatedRating >= ? ");
+            params.add(minRating);
+        }
+
+        // params for count are the filter params only
+        Object[] countParams = params.toArray();
+
+        String orderBy = " ORDER BY r.RecipeId ASC ";
+        if (byRelevance) {
+            orderBy = " ORDER BY ts_rank(r.SearchVector, websearch_to_tsquery('english', ?)) DESC, r.RecipeId ASC ";
+            params.add(keyword.trim());
+        } else if (sort != null) {
+            switch (sort) {
+                case "rating_desc":
+                    orderBy = " ORDER BY r.AggregatedRating DESC NULLS LAST, r.RecipeId DESC ";
+                    break;
+                case "date_desc":
+                    orderBy = " ORDER BY r.DatePublished DESC NULLS LAST, r.RecipeId DESC ";
+                    break;
+                case "calories_asc":
+                    orderBy = " ORDER BY r.Calories ASC NULLS LAST, r.RecipeId DESC ";
+                    break;
+                default:
+                    // keep default
+                    break;
+            }
+        }
+
+        int offset = (page - 1) * size;
+        String sql = "SELECT " + RecipeDetailLoader.RECIPE_COLUMNS + ", u.AuthorName FROM recipes r LEFT JOIN users u ON r.AuthorId = u.AuthorId "
+                + where.toString()
+                + orderBy
+                + " LIMIT ? OFFSET ?";
+
+        // add limit/offset params
+        params.add(size);
+        params.add(offset);
+
+        List<RecipeRecord> items = jdbcTemplate.query(sql, params.toArray(), (rs, rowNum) -> mapRecipeRow(rs, rowNum));
+
+        // load ingredient parts for each recipe (N+1 queries). For correctness and to ensure order.
+        for (RecipeRecord rec : items) {
+            rec.setRecipeIngredientParts(loadIngredientParts(rec.getRecipeId()));
+        }
+
+        // total count
+        String countSql = "SELECT COUNT(*) FROM recipes r " + where.toString();
+        Long total = jdbcTemplate.queryForObject(countSql, countParams, Long.class);
+        if (total == null) total = 0L;
+
+        return PageResult.<RecipeRecord>builder()
+                .items(items)
+                .page(page)
+                .size(size)
+                .total(total)
+                .build();
+    }
+
+    private float getFloatOrZero(ResultSet rs, String col) {
+        try {
+            float v = rs.getFloat(col);
+            if (rs.wasNull()) return 0f;
+            return v;
+        } catch (SQLException e) {
+            return 0f;
+        }
+    }
+
+    private RecipeRecord mapRecipeRow(ResultSet rs, int rowNum) throws SQLException {
+        RecipeRecord r = new RecipeRecord();
+        r.setRecipeId(rs.getLong("RecipeId"));
+        r.setName(rs.getString("Name"));
+        r.setAuthorId(rs.getLong("AuthorId"));
+        try {
+            r.setAuthorName(rs.getString("AuthorName"));
+        } catch (SQLException ignored) {
+            // authorName may not be present in select
+        }
+        r.setCookTime(rs.getString("CookTime"));
+        r.setPrepTime(rs.getString("PrepTime"));
+        r.setTotalTime(rs.getString("TotalTime"));
+        Timestamp ts = rs.getTimestamp("DatePublished");
+        r.setDatePublished(ts);
+        r.setDescription(rs.getString("Description"));
+        r.setRecipeCategory(rs.getString("RecipeCategory"));
+
+        // Ingredient parts will be set later
+        r.setRecipeIngredientParts(null);
+
+        // Ratings and nutrition
+        r.setAggregatedRating(rs.getFloat("AggregatedRating"));
+        r.setReviewCount(rs.getInt("ReviewCount"));
+
+        // calories and nutritional values - some DBs return doubles; use ResultSet getters carefully
+        double calories = rs.getDouble("Calories");
+        if (rs.wasNull()) r.setCalories(0f);
+        else r.setCalories((float) calories);
+
+        r.setFatContent(getFloatOrZero(rs, "FatContent"));
+        r.setSaturatedFatContent(getFloatOrZero(rs, "SaturatedFatContent"));
+        r.setCholesterolContent(getFloatOrZero(rs, "CholesterolContent"));
+        r.setSodiumContent(getFloatOrZero(rs, "SodiumContent"));
+        r.setCarbohydrateContent(getFloatOrZero(rs, "CarbohydrateContent"));
+        r.setFiberContent(getFloatOrZero(rs, "FiberContent"));
+        r.setSugarContent(getFloatOrZero(rs, "SugarContent"));
+        r.setProteinContent(getFloatOrZero(rs, "ProteinContent"));
+
+        // servings / yield - note types mismatch in DB vs DTO: handle gracefully
+        try {
+            r.setRecipeServings(rs.getInt("RecipeServings"));
+        } catch (SQLException e) {
+            // in some schemas it may be varchar; try alternate
+            try {
+                String s = rs.getString("RecipeServings");
+                r.setRecipeServings(s == null ? 0 : Integer.parseInt(s));
+            } catch (Exception ex) {
+                r.setRecipeServings(0);
+            }
+        }
+        r.setRecipeYield(rs.getString("RecipeYield"));
+
+        return r;
+    }
+
+    private String[] loadIngredientParts(long recipeId) {
+        List<String> parts = jdbcTemplate.query(
+                "SELECT Ingredient FROM ingredient WHERE RecipeId = ? ORDER BY LOWER(Ingredient) ASC",
+                (rs, rowNum) -> rs.getString("Ingredient"),
+                recipeId
+        );
+        if (parts == null || parts.isEmpty()) return null;
+        return parts.toArray(new String[0]);
+    }
+}
@@ -6,6 +6,7 @@ plugins {
     alias(libs.plugins.spring.boot)
     alias(libs.plugins.spring.dependencyManagement)
     alias(libs.plugins.lombok)
+    alias(libs.plugins.jmh)
 }
 
 repositories {
@@ -36,6 +37,25 @@ dependencies {
 
 
 
+// 微基准位于 src/jmh/java，用 ./gradlew :sustc-runner:jmh 运行
+jmh {
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+}
+
+// CsvListScanner 与旧实现的等价性检查，随 check 一起运行
+val csvListEquivalence by tasks.registering(JavaExec::class) {
+    group = "verification"
+    description = "Check that CsvListScanner parses id lists like the previous parser"
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("io.sustc.command.CsvListScannerEquivalence")
+}
+
+tasks.named("check") {
+    dependsOn(csvListEquivalence)
+}
+
 tasks.withType<JavaExec> {
     standardInput = System.`in`
 }
@@ -0,0 +1,152 @@
+package io.sustc.command;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares {@link CsvListScanner} with the regex-based list parsing it replaced in {@link DatabaseCommand}.
+ * <p>
+ * Inputs look like the list columns of the CSV exports: a dozen ingredients per recipe,
+ * and follower/like id lists of a few dozen ids.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CsvListScannerBenchmark {
+
+    private static final String[] INGREDIENTS = {
+            "butter", "all-purpose flour", "eggs", "white sugar", "salt", "black pepper", "garlic cloves",
+            "onion", "olive oil", "milk", "baking powder", "vanilla extract", "lemon juice", "cheddar cheese"
+    };
+
+    private String ingredients;
+
+    private String ids;
+
+    @Setup
+    public void setup() {
+        StringJoiner parts = new StringJoiner(", ", "c(", ")");
+        for (int i = 0; i < 12; i++) {
+            parts.add("\"" + INGREDIENTS[i % INGREDIENTS.length] + "\"");
+        }
+        ingredients = parts.toString();
+
+        StringJoiner list = new StringJoiner(", ", "(", ")");
+        for (int i = 0; i < 40; i++) {
+            list.add(Long.toString(1_000_000L + i * 7919L));
+        }
+        ids = list.toString();
+    }
+
+    @Benchmark
+    public String[] ingredientsRegex() {
+        return Legacy.parseCsvList(ingredients);
+    }
+
+    @Benchmark
+    public String[] ingredientsScanner() {
+        return CsvListScanner.get().scanStrings(ingredients);
+    }
+
+    @Benchmark
+    public long[] idsSplit() {
+        return Legacy.parseCsvLongList(ids);
+    }
+
+    @Benchmark
+    public long[] idsScanner() {
+        return CsvListScanner.get().scanLongs(ids);
+    }
+
+    /**
+     * The previous implementation, kept verbatim as the baseline.
+     */
+    static class Legacy {
+
+        static String[] parseCsvList(String listStr) {
+            if (listStr == null || listStr.trim().isEmpty() || "null".equalsIgnoreCase(listStr.trim())) {
+                return new String[0];
+            }
+
+            String trimmed = listStr.trim();
+
+            // 检查是否是 c("item1", "item2", ...) 格式
+            if (trimmed.startsWith("c(") && trimmed.endsWith(")")) {
+                // 提取括号内的内容
+                String content = trimmed.substring(2, trimmed.length() - 1).trim();
+
+                // 使用更简单的正则表达式匹配所有引号内的内容
+                Pattern pattern = Pattern.compile("\"([^\"]*)\"");
+                Matcher matcher = pattern.matcher(content);
+
+                List<String> items = new ArrayList<>();
+                while (matcher.find()) {
+                    items.add(matcher.group(1));
+                }
+
+                // 如果找到了引号内的项目，返回它们
+                if (!items.isEmpty()) {
+                    return items.toArray(new String[0]);
+                }
+
+                // 如果没有找到引号内容，尝试按逗号分割括号内的内容
+                return Arrays.stream(content.split("\\s*,\\s*"))
+                        .map(String::trim)
+                        .filter(s -> !s.isEmpty())
+                        .toArray(String[]::new);
+            }
+
+            // 如果不是 c(...) 格式，尝试直接按逗号分割
+            return Arrays.stream(trimmed.split("\\s*,\\s*"))
+                    .map(String::trim)
+                    .filter(s -> !s.isEmpty())
+                    .toArray(String[]::new);
+        }
+
+        // 辅助方法：解析("123", "456")格式的字符串为long数组
+        static long[] parseCsvLongList(String listStr) {
+            // 处理空值或空字符串
+            if (listStr == null || listStr.trim().isEmpty() || "null".equalsIgnoreCase(listStr.trim())) {
+                return new long[0];
+            }
+
+            String trimmedStr = listStr.trim();
+            // 移除开头的括号和结尾的引号“
+            if(trimmedStr.length()>=2) {
+                trimmedStr = trimmedStr.substring(1, trimmedStr.length() - 1);
+            }
+
+            // 如果字符串已经是空字符串，返回空数组
+            if (trimmedStr.isEmpty()) {
+                return new long[0];
+            }
+
+            // 使用逗号分割字符串，并去除每个部分的前后空格
+            String[] stringArray = trimmedStr.split("\\s*,\\s*");
+            long[] longArray = new long[stringArray.length];
+
+            for (int i = 0; i < stringArray.length; i++) {
+                try {
+                    longArray[i] = Long.parseLong(stringArray[i].trim());
+                } catch (NumberFormatException e) {
+                    longArray[i] = 0L; // 解析失败设为0
+                }
+            }
+
+            return longArray;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package io.sustc.command;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that {@link CsvListScanner#scanLongs} returns what {@link CsvListScannerBenchmark.Legacy} returned,
+ * on hand-picked corner cases and on random id lists. Run with {@code ./gradlew :sustc-runner:csvListEquivalence}.
+ * <p>
+ * {@code c(...)} lists are checked against fixed results instead: accepting them is the one intended difference.
+ */
+public class CsvListScannerEquivalence {
+
+    private static final List<String> CASES = List.of(
+            "", "   ", "null", " NULL ", "()", "( )", "(,)", "(, )", "(,,)", "(1)", "(1, 2)", "(1, 2,)", "(1, 2, )",
+            "(1,,2)", "(,1)", "( ,1)", "(1 , , 2)", "\"1,2,3\"", "\"\"", "\"5\"", "5", "12", "(x)", "(1,x,2)",
+            "(-1, +2, -)", "(-9223372036854775808)", "(9223372036854775807)", "(9223372036854775808)",
+            "(-9223372036854775809)", "(000000000000000000001)", "(1\u0001, \u0001)", "(1,\u001c)", "(1,\t\n)",
+            "(٣٤)", "(1 2)", "(\"1\", \"2\")", "[1, 2]", "c("
+    );
+
+    private static final String ALPHABET = "0123456789,,,,  -+\t\u0001\u001cx\"()٣";
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 42;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        for (String input : CASES) {
+            check(input);
+        }
+        // c(...) 是有意接受的新格式，旧实现会把第一项解析成 0
+        expect("c()", new long[0]);
+        expect("c(1, 2)", new long[]{1, 2});
+        Random random = new Random(seed);
+        for (int i = 0; i < rounds; i++) {
+            check(randomList(random));
+        }
+        System.out.printf("scanLongs matches the previous parser on %d inputs%n", CASES.size() + rounds);
+    }
+
+    private static void check(String input) {
+        expect(input, CsvListScannerBenchmark.Legacy.parseCsvLongList(input));
+    }
+
+    private static void expect(String input, long[] expected) {
+        long[] actual = CsvListScanner.get().scanLongs(input);
+        if (!Arrays.equals(expected, actual)) {
+            throw new AssertionError(String.format("scanLongs(%s): expected %s, got %s",
+                    escape(input), Arrays.toString(expected), Arrays.toString(actual)));
+        }
+    }
+
+    /**
+     * A list in brackets or quotes, like the csv columns, whose items are mostly ids and sometimes noise.
+     */
+    private static String randomList(Random random) {
+        StringBuilder s = new StringBuilder();
+        s.append(random.nextInt(4) == 0 ? " " : "");
+        char open = "(\"[".charAt(random.nextInt(3));
+        s.append(open);
+        int items = random.nextInt(6);
+        for (int i = 0; i < items; i++) {
+            if (i > 0) s.append(random.nextBoolean() ? "," : random.nextBoolean() ? ", " : " , ");
+            switch (random.nextInt(5)) {
+                case 0:
+                    s.append(random.nextLong());
+                    break;
+                case 1:
+                    s.append(random.nextBoolean() ? Long.MIN_VALUE : Long.MAX_VALUE);
+                    break;
+                case 2:
+                    for (int n = random.nextInt(4); n > 0; n--) {
+                        s.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+                    }
+                    break;
+                default:
+                    s.append(random.nextInt(100_000));
+            }
+        }
+        s.append(random.nextInt(5) == 0 ? "," : "");
+        s.append(open == '(' ? ')' : open == '[' ? ']' : '"');
+        s.append(random.nextInt(4) == 0 ? "\t" : "");
+        return s.toString();
+    }
+
+    private static String escape(String s) {
+        StringBuilder out = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            out.append(c < ' ' || c > '~' ? String.format("\\u%04x", (int) c) : String.valueOf(c));
+        }
+        return out.append('"').toString();
+    }
+}
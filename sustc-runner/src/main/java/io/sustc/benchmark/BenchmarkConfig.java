@@ -1,14 +1,12 @@
 package io.sustc.benchmark;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import io.fury.Fury;
 import io.fury.ThreadSafeFury;
-import io.fury.config.CompatibleMode;
-import io.fury.config.Language;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.validation.annotation.Validated;
 
 @Configuration
@@ -34,15 +32,21 @@ public class BenchmarkConfig {
      */
     private boolean studentMode = false;
 
+    /**
+     * Fury profile of the import files ({@code import/*.ser}). Test data is always read as {@link FuryProfile#COMPATIBLE}.
+     * The import files must have been written with the same profile, see {@code db csv2ser}.
+     */
+    private FuryProfile importFuryProfile = FuryProfile.COMPATIBLE;
+
     @Bean
+    @Primary
     ThreadSafeFury fury() {
-        return Fury.builder()
-                .requireClassRegistration(false)
-                .withLanguage(Language.JAVA)
-                .withRefTracking(true)
-                .withCompatibleMode(CompatibleMode.COMPATIBLE)
-                .withAsyncCompilation(true)
-                .buildThreadSafeFury();
+        return FuryProfile.COMPATIBLE.build();
+    }
+
+    @Bean
+    ThreadSafeFury importFury() {
+        return importFuryProfile.build();
     }
 
     @Bean
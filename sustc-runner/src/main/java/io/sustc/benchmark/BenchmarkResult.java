@@ -1,5 +1,7 @@
 package io.sustc.benchmark;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.sustc.dto.ImportReport;
 import lombok.Data;
 
 import java.util.concurrent.atomic.AtomicLong;
@@ -17,6 +19,12 @@ public class BenchmarkResult {
 
     private Long elapsedTime;
 
+    /**
+     * Per-phase metrics, only filled in by the import step.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ImportReport importReport;
+
     public BenchmarkResult(Long elapsedTime) {
         this.elapsedTime = elapsedTime;
     }
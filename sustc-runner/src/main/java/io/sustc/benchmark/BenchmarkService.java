@@ -38,6 +38,9 @@ public class BenchmarkService {
     @Autowired
     private ThreadSafeFury fury;
 
+    @Autowired
+    private ThreadSafeFury importFury;
+
 //    private final Map<Long, String> sentDanmu = new ConcurrentHashMap<>();
 //
 //    private final Set<String> postedVideo = new ConcurrentSkipListSet<>();
@@ -55,9 +58,9 @@ public class BenchmarkService {
 
     @BenchmarkStep(order = 1, timeout = 35, description = "Import data")
     public BenchmarkResult importData() {
-        List<ReviewRecord> reviewRecords = deserialize(BenchmarkConstants.IMPORT_DATA, BenchmarkConstants.REVIEW_RECORDS);
-        List<UserRecord> userRecords = deserialize(BenchmarkConstants.IMPORT_DATA, BenchmarkConstants.USER_RECORDS);
-        List<RecipeRecord> recipeRecords = deserialize(BenchmarkConstants.IMPORT_DATA, BenchmarkConstants.RECIPE_RECORDS);
+        List<ReviewRecord> reviewRecords = deserialize(importFury, BenchmarkConstants.IMPORT_DATA, BenchmarkConstants.REVIEW_RECORDS);
+        List<UserRecord> userRecords = deserialize(importFury, BenchmarkConstants.IMPORT_DATA, BenchmarkConstants.USER_RECORDS);
+        List<RecipeRecord> recipeRecords = deserialize(importFury, BenchmarkConstants.IMPORT_DATA, BenchmarkConstants.RECIPE_RECORDS);
 
         val startTime = System.currentTimeMillis();
         try {
@@ -67,7 +70,9 @@ public class BenchmarkService {
         }
         val endTime = System.currentTimeMillis();
 
-        return new BenchmarkResult(endTime - startTime);
+        val result = new BenchmarkResult(endTime - startTime);
+        result.setImportReport(databaseService.getLastImportReport());
+        return result;
     }
 
     @BenchmarkStep(order = 2, description = "Test RecipeService#getRecipeNameFromID(Long)")
@@ -761,10 +766,18 @@ public class BenchmarkService {
         return new BenchmarkResult(pass, endTime - startTime);
     }
 
+    private <T> T deserialize(String... path) {
+        return deserialize(fury, path);
+    }
+
     @SneakyThrows
     @SuppressWarnings("unchecked")
-    private <T> T deserialize(String... path) {
+    private <T> T deserialize(ThreadSafeFury fury, String... path) {
         val file = Paths.get(config.getDataPath(), path);
+        // 分块格式按块并行解码，旧格式整体反序列化
+        if (SerFrames.isFramed(file)) {
+            return (T) SerFrames.readList(fury, file);
+        }
         return (T) fury.deserialize(Files.readAllBytes(file));
     }
 
@@ -0,0 +1,105 @@
+package io.sustc.benchmark;
+
+import io.fury.Fury;
+import io.fury.ThreadLocalFury;
+import io.fury.ThreadSafeFury;
+import io.fury.config.CompatibleMode;
+import io.fury.config.FuryBuilder;
+import io.fury.config.Language;
+import io.sustc.dto.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fury configurations for the {@code .ser} files.
+ * <p>
+ * {@link #COMPATIBLE} reads any file, including the provided test data, at the cost of class metadata
+ * in every record. The registered profiles write {@code io.sustc.dto} classes as fixed ids and use
+ * the schema-consistent path, so they can only read files written with the same profile;
+ * they suit the import files that {@code db csv2ser} generates.
+ */
+public enum FuryProfile {
+
+    COMPATIBLE,
+
+    /**
+     * Registered ids, ref tracking kept for shared objects.
+     */
+    REGISTERED,
+
+    /**
+     * Registered ids without ref tracking. Records are trees, so the import files need none.
+     */
+    REGISTERED_NO_REF;
+
+    /**
+     * Registration ids start here, clear of the ids Fury assigns to its built-in types.
+     */
+    private static final short FIRST_ID = 300;
+
+    /**
+     * Registration order gives the ids: only append to this list.
+     */
+    private static final List<Class<?>> DTO_CLASSES = List.of(
+            UserRecord.class,
+            RecipeRecord.class,
+            ReviewRecord.class,
+            AuthInfo.class,
+            RegisterUserReq.class,
+            RegisterUserReq.Gender.class,
+            PageResult.class,
+            FeedItem.class,
+            ImportMode.class,
+            ImportOptions.class,
+            ImportPhase.class,
+            ImportReport.class
+    );
+
+    public ThreadSafeFury build() {
+        if (this == COMPATIBLE) {
+            return Fury.builder()
+                    .requireClassRegistration(false)
+                    .withLanguage(Language.JAVA)
+                    .withRefTracking(true)
+                    .withCompatibleMode(CompatibleMode.COMPATIBLE)
+                    .withAsyncCompilation(true)
+                    .buildThreadSafeFury();
+        }
+        FuryBuilder builder = Fury.builder()
+                .requireClassRegistration(true)
+                .withLanguage(Language.JAVA)
+                .withRefTracking(this == REGISTERED)
+                .withCompatibleMode(CompatibleMode.SCHEMA_CONSISTENT)
+                // 启动时同步生成序列化代码，而不是在首次导入时
+                .withAsyncCompilation(false);
+        // 注册只能在每个线程自己的 Fury 上进行
+        ThreadSafeFury fury = new ThreadLocalFury(classLoader -> {
+            Fury perThread;
+            synchronized (builder) {
+                perThread = builder.withClassLoader(classLoader).build();
+            }
+            register(perThread);
+            return perThread;
+        });
+        warmUp(fury);
+        return fury;
+    }
+
+    private static void register(Fury fury) {
+        for (int i = 0; i < DTO_CLASSES.size(); i++) {
+            fury.register(DTO_CLASSES.get(i), (short) (FIRST_ID + i));
+        }
+    }
+
+    /**
+     * Round-trips one record of each import type so that their serializers are generated now.
+     */
+    private static void warmUp(ThreadSafeFury fury) {
+        List<Object> sample = new ArrayList<>();
+        sample.add(UserRecord.builder().authorName("").followerUsers(new long[]{1}).followingUsers(new long[0]).build());
+        sample.add(RecipeRecord.builder().name("").recipeIngredientParts(new String[]{""}).build());
+        sample.add(ReviewRecord.builder().review("").likes(new long[]{1}).build());
+        fury.deserialize(fury.serialize(sample));
+    }
+}
@@ -0,0 +1,251 @@
+package io.sustc.benchmark;
+
+import io.fury.ThreadSafeFury;
+import lombok.NoArgsConstructor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Framed layout for large record files, as an alternative to one Fury-serialized list.
+ * <pre>
+ * header: magic "SUSTCSER" | int version | int recordsPerChunk | long recordCount | int chunkCount
+ * chunk:  int byteLength | int recordCount | byteLength bytes of a Fury-serialized List
+ * </pre>
+ * All integers are big-endian. Chunks are memory-mapped and decoded independently,
+ * so a file can be read in parallel ({@link #readList}) or one chunk at a time ({@link #iterate}).
+ */
+@NoArgsConstructor(access = lombok.AccessLevel.PRIVATE)
+public final class SerFrames {
+
+    public static final int DEFAULT_CHUNK_RECORDS = 4096;
+
+    private static final byte[] MAGIC = {'S', 'U', 'S', 'T', 'C', 'S', 'E', 'R'};
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = MAGIC.length + 4 + 4 + 8 + 4;
+
+    private static final int FRAME_HEADER_SIZE = 4 + 4;
+
+    /**
+     * Whether {@code file} is in the framed layout rather than a plain Fury blob.
+     */
+    public static boolean isFramed(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // 读满魔数或到达文件末尾
+            }
+            return !magic.hasRemaining() && magic.flip().equals(ByteBuffer.wrap(MAGIC));
+        }
+    }
+
+    /**
+     * Decodes every chunk on the common fork-join pool and returns the records in file order.
+     */
+    public static <T> List<T> readList(ThreadSafeFury fury, Path file) throws IOException {
+        Index index = index(file);
+        List<List<T>> chunks = IntStream.range(0, index.chunks.size())
+                .parallel()
+                .mapToObj(i -> SerFrames.<T>decode(fury, index.chunks.get(i)))
+                .collect(Collectors.toList());
+        List<T> records = new ArrayList<>((int) index.recordCount);
+        chunks.forEach(records::addAll);
+        return records;
+    }
+
+    /**
+     * Returns the records of {@code file}, decoding a chunk only when the previous one is used up.
+     */
+    public static <T> Iterator<T> iterate(ThreadSafeFury fury, Path file) throws IOException {
+        Iterator<MappedByteBuffer> chunks = index(file).chunks.iterator();
+        return new Iterator<>() {
+            private Iterator<T> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && chunks.hasNext()) {
+                    current = SerFrames.<T>decode(fury, chunks.next()).iterator();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return current.next();
+            }
+        };
+    }
+
+    public static <T> Writer<T> writer(ThreadSafeFury fury, Path file) throws IOException {
+        return writer(fury, file, DEFAULT_CHUNK_RECORDS);
+    }
+
+    public static <T> Writer<T> writer(ThreadSafeFury fury, Path file, int recordsPerChunk) throws IOException {
+        return new Writer<>(fury, file, recordsPerChunk);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> decode(ThreadSafeFury fury, MappedByteBuffer chunk) {
+        byte[] bytes = new byte[chunk.remaining()];
+        chunk.duplicate().get(bytes);
+        return (List<T>) fury.deserialize(bytes);
+    }
+
+    private static Index index(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            if (!ByteBuffer.wrap(magic).equals(ByteBuffer.wrap(MAGIC))) {
+                throw new IOException("Not a framed record file: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported record file version " + version + ": " + file);
+            }
+            header.getInt();
+            long recordCount = header.getLong();
+            int chunkCount = header.getInt();
+
+            // 映射在通道关闭后仍然有效
+            List<MappedByteBuffer> chunks = new ArrayList<>(chunkCount);
+            long position = HEADER_SIZE;
+            for (int i = 0; i < chunkCount; i++) {
+                ByteBuffer frame = readFully(channel, position, FRAME_HEADER_SIZE);
+                int length = frame.getInt();
+                position += FRAME_HEADER_SIZE;
+                chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+                position += length;
+            }
+            return new Index(recordCount, chunks);
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int size) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) {
+                throw new IOException("Truncated record file");
+            }
+        }
+        return buf.flip();
+    }
+
+    private static class Index {
+
+        private final long recordCount;
+
+        private final List<MappedByteBuffer> chunks;
+
+        Index(long recordCount, List<MappedByteBuffer> chunks) {
+            this.recordCount = recordCount;
+            this.chunks = chunks;
+        }
+    }
+
+    /**
+     * Writes records as they arrive, holding at most one chunk of them in memory.
+     * The header is completed on {@link #close()}.
+     */
+    public static class Writer<T> implements Consumer<T>, Closeable {
+
+        private final ThreadSafeFury fury;
+
+        private final FileChannel channel;
+
+        private final int recordsPerChunk;
+
+        private final List<T> chunk;
+
+        private long recordCount;
+
+        private int chunkCount;
+
+        private Writer(ThreadSafeFury fury, Path file, int recordsPerChunk) throws IOException {
+            this.fury = fury;
+            this.recordsPerChunk = recordsPerChunk;
+            this.chunk = new ArrayList<>(recordsPerChunk);
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            channel.position(HEADER_SIZE);
+        }
+
+        @Override
+        public void accept(T record) {
+            chunk.add(record);
+            recordCount++;
+            if (chunk.size() == recordsPerChunk) {
+                try {
+                    flushChunk();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+
+        public long count() {
+            return recordCount;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (!chunk.isEmpty()) {
+                    flushChunk();
+                }
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                        .put(MAGIC)
+                        .putInt(VERSION)
+                        .putInt(recordsPerChunk)
+                        .putLong(recordCount)
+                        .putInt(chunkCount)
+                        .flip();
+                writeFully(header, 0);
+            } finally {
+                channel.close();
+            }
+        }
+
+        private void flushChunk() throws IOException {
+            byte[] bytes = fury.serialize(chunk);
+            ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_SIZE)
+                    .putInt(bytes.length)
+                    .putInt(chunk.size())
+                    .flip();
+            long position = channel.position();
+            writeFully(frame, position);
+            writeFully(ByteBuffer.wrap(bytes), position + FRAME_HEADER_SIZE);
+            channel.position(position + FRAME_HEADER_SIZE + bytes.length);
+            chunk.clear();
+            chunkCount++;
+        }
+
+        private void writeFully(ByteBuffer buf, long position) throws IOException {
+            long offset = position;
+            while (buf.hasRemaining()) {
+                offset += channel.write(buf, offset);
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package io.sustc.command;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Single-pass parser for the list columns of the CSV exports:
+ * R-style string vectors such as {@code c("salt", "black pepper")} and id lists such as {@code (123, 456)}.
+ * <p>
+ * Quoted items may contain commas, and quotes escaped as {@code \"} or {@code ""}. Bare items are trimmed,
+ * and empty bare items are skipped.
+ * <p>
+ * Id lists give the same result as the previous {@code split}-based parser: the first and last character
+ * (the brackets or quotes around the list) are dropped, empty items count as {@code 0} unless nothing but
+ * empty items follows them, and an item that is not a valid {@code long} becomes {@code 0}. A {@code c(...)}
+ * list is accepted as well. Ids are parsed straight from the characters.
+ * <p>
+ * The scratch buffers are reused between calls, so an instance must not be shared between threads;
+ * use {@link #get()} for the one of the current thread.
+ */
+public final class CsvListScanner {
+
+    private static final ThreadLocal<CsvListScanner> LOCAL = ThreadLocal.withInitial(CsvListScanner::new);
+
+    private static final String[] NO_STRINGS = new String[0];
+
+    private static final long[] NO_LONGS = new long[0];
+
+    private final StringBuilder item = new StringBuilder();
+
+    private final List<String> items = new ArrayList<>();
+
+    private long[] longs = new long[64];
+
+    public static CsvListScanner get() {
+        return LOCAL.get();
+    }
+
+    public String[] scanStrings(String s) {
+        if (s == null) return NO_STRINGS;
+        int from = skipSpaces(s, 0, s.length());
+        int to = trimEnd(s, from, s.length());
+        if (isBlankOrNull(s, from, to)) return NO_STRINGS;
+        if (to - from >= 3 && s.charAt(from) == 'c' && s.charAt(from + 1) == '(' && s.charAt(to - 1) == ')') {
+            from += 2;
+            to--;
+        }
+
+        int i = from;
+        while (i < to) {
+            i = skipSpaces(s, i, to);
+            if (i >= to) break;
+            if (s.charAt(i) == '"') {
+                i = readQuoted(s, i + 1, to);
+                while (i < to && s.charAt(i) != ',') i++;
+            } else {
+                int end = i;
+                while (end < to && s.charAt(end) != ',') end++;
+                int itemEnd = trimEnd(s, i, end);
+                if (itemEnd > i) items.add(s.substring(i, itemEnd));
+                i = end;
+            }
+            i++;
+        }
+
+        String[] result = items.toArray(NO_STRINGS);
+        items.clear();
+        return result;
+    }
+
+    public long[] scanLongs(String s) {
+        if (s == null) return NO_LONGS;
+        int from = skipSpaces(s, 0, s.length());
+        int to = trimEnd(s, from, s.length());
+        if (isBlankOrNull(s, from, to)) return NO_LONGS;
+        // 与旧实现一样去掉首尾各一个字符（括号或引号），另外接受 c( 前缀
+        if (to - from >= 3 && s.charAt(from) == 'c' && s.charAt(from + 1) == '(' && s.charAt(to - 1) == ')') {
+            from += 2;
+            to--;
+        } else if (to - from >= 2) {
+            from++;
+            to--;
+        }
+        if (from >= to) return NO_LONGS;
+
+        int comma = s.indexOf(',', from);
+        if (comma < 0 || comma >= to) {
+            longs[0] = parseLong(s, from, to);
+            return Arrays.copyOf(longs, 1);
+        }
+
+        int count = 0;
+        int empty = 0;
+        int start = from;
+        while (start <= to) {
+            int end = s.indexOf(',', start);
+            if (end < 0 || end > to) end = to;
+            // 逗号两侧的空白属于分隔符
+            int itemFrom = start > from ? skipRegexSpaces(s, start, end) : start;
+            int itemTo = end < to ? trimRegexSpaces(s, itemFrom, end) : end;
+            if (itemFrom == itemTo) {
+                // 空项只有后面还有值时才记为 0，末尾的空项被丢弃
+                empty++;
+            } else {
+                if (count + empty + 1 > longs.length) longs = Arrays.copyOf(longs, Math.max(longs.length * 2, count + empty + 1));
+                for (; empty > 0; empty--) longs[count++] = 0L;
+                longs[count++] = parseLong(s, itemFrom, itemTo);
+            }
+            start = end + 1;
+        }
+        return count == 0 ? NO_LONGS : Arrays.copyOf(longs, count);
+    }
+
+    /**
+     * {@link Long#parseLong} of the trimmed item, or {@code 0} if it is not a valid {@code long}.
+     * Plain ids are parsed from the characters; anything else goes through {@link Long#parseLong}.
+     */
+    private static long parseLong(String s, int from, int to) {
+        from = skipSpaces(s, from, to);
+        to = trimEnd(s, from, to);
+        int i = from;
+        boolean negative = false;
+        if (i < to && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+        // 18 位以内不会溢出
+        if (i < to && to - i <= 18) {
+            long value = 0;
+            for (; i < to; i++) {
+                char c = s.charAt(i);
+                if (c < '0' || c > '9') break;
+                value = value * 10 + (c - '0');
+            }
+            if (i == to) return negative ? -value : value;
+        }
+        try {
+            return Long.parseLong(s.substring(from, to));
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    /**
+     * Reads a quoted item starting after its opening quote and returns the index after the closing one.
+     */
+    private int readQuoted(String s, int i, int to) {
+        int start = i;
+        boolean copied = false;
+        while (i < to) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < to) {
+                if (!copied) {
+                    item.setLength(0);
+                    item.append(s, start, i);
+                    copied = true;
+                }
+                item.append(s.charAt(i + 1));
+                i += 2;
+            } else if (c == '"' && i + 1 < to && s.charAt(i + 1) == '"') {
+                if (!copied) {
+                    item.setLength(0);
+                    item.append(s, start, i);
+                    copied = true;
+                }
+                item.append('"');
+                i += 2;
+            } else if (c == '"') {
+                break;
+            } else {
+                if (copied) item.append(c);
+                i++;
+            }
+        }
+        items.add(copied ? item.toString() : s.substring(start, i));
+        return i + 1;
+    }
+
+    private static boolean isBlankOrNull(String s, int from, int to) {
+        return from >= to || (to - from == 4 && s.regionMatches(true, from, "null", 0, 4));
+    }
+
+    private static int skipSpaces(String s, int i, int to) {
+        while (i < to && s.charAt(i) <= ' ') i++;
+        return i;
+    }
+
+    private static int trimEnd(String s, int from, int to) {
+        while (to > from && s.charAt(to - 1) <= ' ') to--;
+        return to;
+    }
+
+    /**
+     * Skips the characters of the regex class {@code \s}, which {@code String.split("\\s*,\\s*")} removed.
+     */
+    private static int skipRegexSpaces(String s, int i, int to) {
+        while (i < to && isRegexSpace(s.charAt(i))) i++;
+        return i;
+    }
+
+    private static int trimRegexSpaces(String s, int from, int to) {
+        while (to > from && isRegexSpace(s.charAt(to - 1))) to--;
+        return to;
+    }
+
+    private static boolean isRegexSpace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+}
@@ -0,0 +1,129 @@
+package io.sustc.command;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Parses CSV files on background threads and hands the records to the consumer through bounded queues.
+ * <p>
+ * Every {@link #read} starts one parser thread. Records travel in batches of {@value #BATCH_SIZE},
+ * and at most {@value #QUEUE_BATCHES} batches wait in each queue, so a parser that runs ahead
+ * of the database blocks instead of filling the heap. A parse failure is rethrown by the consumer's iterator.
+ * Closing the pipeline stops parsers that are still running.
+ */
+class CsvPipeline implements Closeable {
+
+    private static final int BATCH_SIZE = 512;
+
+    private static final int QUEUE_BATCHES = 16;
+
+    private static final Object END = new Object();
+
+    private final AtomicInteger threadId = new AtomicInteger();
+
+    @SuppressWarnings("AlibabaThreadPoolCreation")
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "csv-parser-" + threadId.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Starts parsing {@code reader} and returns the records it yields, in file order.
+     * The reader is closed by the parser thread.
+     */
+    <T> Iterator<T> read(CsvRecordReader<T> reader) {
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_BATCHES);
+        executor.submit(() -> parse(reader, queue));
+        return new Drain<>(queue);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static <T> void parse(CsvRecordReader<T> reader, BlockingQueue<Object> queue) {
+        try (reader) {
+            List<T> batch = new ArrayList<>(BATCH_SIZE);
+            while (reader.hasNext()) {
+                batch.add(reader.next());
+                if (batch.size() == BATCH_SIZE) {
+                    queue.put(batch);
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            if (!batch.isEmpty()) queue.put(batch);
+            queue.put(END);
+        } catch (InterruptedException e) {
+            // 消费者已关闭流水线
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            try {
+                queue.put(new Failure(e));
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class Failure {
+
+        private final Exception cause;
+
+        Failure(Exception cause) {
+            this.cause = cause;
+        }
+    }
+
+    private static class Drain<T> implements Iterator<T> {
+
+        private final BlockingQueue<Object> queue;
+
+        private Iterator<T> batch = Collections.emptyIterator();
+
+        private boolean ended;
+
+        Drain(BlockingQueue<Object> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean hasNext() {
+            while (!batch.hasNext() && !ended) {
+                Object item;
+                try {
+                    item = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for parsed records", e);
+                }
+                if (item == END) {
+                    ended = true;
+                } else if (item instanceof Failure) {
+                    ended = true;
+                    throw new RuntimeException("Failed to parse csv", ((Failure) item).cause);
+                } else {
+                    batch = ((List<T>) item).iterator();
+                }
+            }
+            return batch.hasNext();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return batch.next();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package io.sustc.command;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Reads records from a CSV file one row at a time.
+ * <p>
+ * The header row is skipped, and so is every row with fewer than {@code minFields} columns,
+ * as the old {@code readAll()} loaders did. Only the current row is held in memory.
+ */
+public class CsvRecordReader<T> implements Iterator<T>, Closeable {
+
+    private final CSVReader reader;
+
+    private final int minFields;
+
+    private final Function<String[], T> mapper;
+
+    private T next;
+
+    private boolean done;
+
+    public CsvRecordReader(CSVReader reader, int minFields, Function<String[], T> mapper) {
+        this.reader = reader;
+        this.minFields = minFields;
+        this.mapper = mapper;
+        // 跳过标题行
+        readRow();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && !done) {
+            String[] fields = readRow();
+            if (fields == null) {
+                done = true;
+            } else if (fields.length >= minFields) {
+                next = mapper.apply(fields);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        T record = next;
+        next = null;
+        return record;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private String[] readRow() {
+        try {
+            return reader.readNext();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (CsvValidationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,493 @@
+package io.sustc.command;
+
+import com.opencsv.CSVWriter;
+import io.fury.ThreadSafeFury;
+import io.sustc.benchmark.SerFrames;
+import io.sustc.dto.RecipeRecord;
+import io.sustc.dto.ReviewRecord;
+import io.sustc.dto.UserRecord;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.StringJoiner;
+import java.util.function.IntSupplier;
+
+/**
+ * Generates a dataset {@code scale} times the size of the one in {@code data/csv}, with the same shape.
+ * <p>
+ * Users copy age, gender, name and password from the source users in turn. Everything else is drawn
+ * from the source distributions:
+ * <ul>
+ *     <li>followees by popularity weights from a power law fitted to the source follower counts,
+ *     with out-degrees sampled from the source,</li>
+ *     <li>reviews spread over recipes by weights from a power law fitted to the source reviews per recipe,
+ *     likes per review sampled from the source,</li>
+ *     <li>categories, ingredient lists, nutrition and times each from a random source recipe,</li>
+ *     <li>publish dates from the source, review dates as the source delays after publishing and between edits.</li>
+ * </ul>
+ * Every record is drawn from its own generator seeded from {@code seed} and its id, so the output depends on
+ * the seed only and the same record can be drawn again. Recipe ratings and counts are computed by drawing
+ * the reviews twice. Memory grows with the number of follow edges and recipes, not with the reviews.
+ */
+@Slf4j
+class DataGenerator {
+
+    private static final long STREAM_USER_WEIGHT = 1;
+
+    private static final long STREAM_FOLLOW = 2;
+
+    private static final long STREAM_RECIPE = 3;
+
+    private static final long STREAM_RECIPE_WEIGHT = 4;
+
+    private static final long STREAM_REVIEW = 5;
+
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ISO_INSTANT;
+
+    private final ThreadSafeFury fury;
+
+    private final long seed;
+
+    // 源数据
+    private final List<UserRecord> srcUsers;
+
+    private final List<RecipeRecord> srcRecipes;
+
+    private final List<ReviewRecord> srcReviews;
+
+    private final int[] srcFollowing;
+
+    private final int[] srcLikes;
+
+    private final float[] srcRatings;
+
+    private final long[] srcPublished;
+
+    private final long[] srcReviewDelays;
+
+    private final long[] srcEditDelays;
+
+    private final int[] srcFollowers;
+
+    private final int[] srcRecipeReviews;
+
+    private final PowerLawTail followerTail;
+
+    private final PowerLawTail reviewTail;
+
+    // 生成规模
+    private final int userCount;
+
+    private final int recipeCount;
+
+    private final int reviewCount;
+
+    private AliasTable userWeights;
+
+    private AliasTable recipeWeights;
+
+    private long[] recipePublished;
+
+    DataGenerator(Path sourceDir, ThreadSafeFury fury, int scale, long seed) throws IOException {
+        this.fury = fury;
+        this.seed = seed;
+        srcUsers = DatabaseCommand.loadUsers(sourceDir.resolve("users.csv").toString());
+        srcRecipes = DatabaseCommand.loadRecipes(sourceDir.resolve("recipes.csv").toString());
+        srcReviews = DatabaseCommand.loadReviews(sourceDir.resolve("reviews.csv").toString());
+        if (srcUsers.isEmpty() || srcRecipes.isEmpty() || srcReviews.isEmpty()) {
+            throw new IllegalArgumentException("Source data in " + sourceDir + " is incomplete");
+        }
+
+        srcFollowing = srcUsers.stream().mapToInt(u -> length(u.getFollowingUsers())).toArray();
+        srcFollowers = srcUsers.stream().mapToInt(u -> length(u.getFollowerUsers())).toArray();
+        followerTail = PowerLawTail.fit(srcFollowers);
+
+        Map<Long, Long> published = new HashMap<>();
+        for (RecipeRecord r : srcRecipes) {
+            if (r.getDatePublished() != null) published.put(r.getRecipeId(), r.getDatePublished().getTime());
+        }
+        srcPublished = published.values().stream().mapToLong(Long::longValue).toArray();
+
+        Map<Long, Integer> reviewsPerRecipe = new HashMap<>();
+        srcLikes = new int[srcReviews.size()];
+        srcRatings = new float[srcReviews.size()];
+        long[] reviewDelays = new long[srcReviews.size()];
+        long[] editDelays = new long[srcReviews.size()];
+        int delays = 0, edits = 0;
+        for (int i = 0; i < srcReviews.size(); i++) {
+            ReviewRecord rv = srcReviews.get(i);
+            reviewsPerRecipe.merge(rv.getRecipeId(), 1, Integer::sum);
+            srcLikes[i] = length(rv.getLikes());
+            srcRatings[i] = rv.getRating();
+            Long recipePublished = published.get(rv.getRecipeId());
+            if (rv.getDateSubmitted() != null && recipePublished != null && rv.getDateSubmitted().getTime() >= recipePublished) {
+                reviewDelays[delays++] = rv.getDateSubmitted().getTime() - recipePublished;
+            }
+            if (rv.getDateSubmitted() != null && rv.getDateModified() != null
+                    && rv.getDateModified().getTime() >= rv.getDateSubmitted().getTime()) {
+                editDelays[edits++] = rv.getDateModified().getTime() - rv.getDateSubmitted().getTime();
+            }
+        }
+        srcReviewDelays = delays > 0 ? Arrays.copyOf(reviewDelays, delays) : new long[]{0};
+        srcEditDelays = edits > 0 ? Arrays.copyOf(editDelays, edits) : new long[]{0};
+        srcRecipeReviews = srcRecipes.stream().mapToInt(r -> reviewsPerRecipe.getOrDefault(r.getRecipeId(), 0)).toArray();
+        reviewTail = PowerLawTail.fit(srcRecipeReviews);
+
+        userCount = Math.multiplyExact(srcUsers.size(), scale);
+        recipeCount = Math.multiplyExact(srcRecipes.size(), scale);
+        reviewCount = Math.multiplyExact(srcReviews.size(), scale);
+    }
+
+    /**
+     * Writes {@code csv/*.csv} and {@code import/*.ser} under {@code out}.
+     */
+    void generate(Path out) throws IOException {
+        log.info("Generating {} users, {} recipes and {} reviews (follower tail {}, review tail {})",
+                userCount, recipeCount, reviewCount, followerTail, reviewTail);
+        Path csv = Files.createDirectories(out.resolve("csv"));
+        Path ser = Files.createDirectories(out.resolve("import"));
+
+        userWeights = weights(userCount, srcFollowers, followerTail, STREAM_USER_WEIGHT);
+        recipeWeights = weights(recipeCount, srcRecipeReviews, reviewTail, STREAM_RECIPE_WEIGHT);
+
+        writeUsers(csv.resolve("users.csv"), ser.resolve("users.ser"));
+        writeRecipes(csv.resolve("recipes.csv"), ser.resolve("recipes.ser"));
+        writeReviews(csv.resolve("reviews.csv"), ser.resolve("reviews.ser"));
+    }
+
+    private void writeUsers(Path csvFile, Path serFile) throws IOException {
+        // 关注关系按需重新生成，只保存反向边
+        int[] inOffsets = new int[userCount + 1];
+        for (int u = 0; u < userCount; u++) {
+            for (int v : following(u)) inOffsets[v + 1]++;
+        }
+        for (int u = 0; u < userCount; u++) inOffsets[u + 1] += inOffsets[u];
+        int[] inEdges = new int[inOffsets[userCount]];
+        int[] fill = Arrays.copyOf(inOffsets, userCount);
+        for (int u = 0; u < userCount; u++) {
+            for (int v : following(u)) inEdges[fill[v]++] = u;
+        }
+        log.info("Generated {} follow edges", inEdges.length);
+
+        try (CSVWriter w = csvWriter(csvFile, '\\');
+             SerFrames.Writer<UserRecord> s = SerFrames.writer(fury, serFile)) {
+            w.writeNext(new String[]{"AuthorId", "AuthorName", "Gender", "Age", "Followers", "Following",
+                    "FollowerUsers", "FollowingUsers", "Password"});
+            for (int u = 0; u < userCount; u++) {
+                UserRecord template = srcUsers.get(u % srcUsers.size());
+                long[] followers = new long[inOffsets[u + 1] - inOffsets[u]];
+                for (int i = 0; i < followers.length; i++) followers[i] = inEdges[inOffsets[u] + i] + 1L;
+                long[] following = Arrays.stream(following(u)).mapToLong(v -> v + 1L).toArray();
+                UserRecord user = UserRecord.builder()
+                        .authorId(u + 1L)
+                        .authorName(userName(u))
+                        .gender(template.getGender())
+                        .age(template.getAge())
+                        .followers(followers.length)
+                        .following(following.length)
+                        .followerUsers(followers)
+                        .followingUsers(following)
+                        .password(template.getPassword())
+                        .build();
+                w.writeNext(new String[]{
+                        Long.toString(user.getAuthorId()), user.getAuthorName(), user.getGender(),
+                        Integer.toString(user.getAge()), Integer.toString(user.getFollowers()),
+                        Integer.toString(user.getFollowing()), ids(followers), ids(following), user.getPassword()});
+                s.accept(user);
+            }
+        }
+    }
+
+    private void writeRecipes(Path csvFile, Path serFile) throws IOException {
+        // 先抽一遍评论，得到每个食谱的评分和评论数
+        int[] counts = new int[recipeCount];
+        double[] ratingSums = new double[recipeCount];
+        for (int i = 0; i < reviewCount; i++) {
+            SplittableRandom rng = rng(STREAM_REVIEW, i);
+            int recipe = recipeWeights.sample(rng);
+            counts[recipe]++;
+            ratingSums[recipe] += srcRatings[rng.nextInt(srcRatings.length)];
+        }
+
+        recipePublished = new long[recipeCount];
+        try (CSVWriter w = csvWriter(csvFile, CSVWriter.DEFAULT_ESCAPE_CHARACTER);
+             SerFrames.Writer<RecipeRecord> s = SerFrames.writer(fury, serFile)) {
+            w.writeNext(new String[]{"RecipeId", "Name", "AuthorId", "AuthorName", "CookTime", "PrepTime", "TotalTime",
+                    "DatePublished", "Description", "RecipeCategory", "RecipeIngredientParts", "AggregatedRating",
+                    "ReviewCount", "Calories", "FatContent", "SaturatedFatContent", "CholesterolContent", "SodiumContent",
+                    "CarbohydrateContent", "FiberContent", "SugarContent", "ProteinContent", "RecipeServings", "RecipeYield"});
+            for (int r = 0; r < recipeCount; r++) {
+                SplittableRandom rng = rng(STREAM_RECIPE, r);
+                RecipeRecord named = pick(srcRecipes, rng);
+                RecipeRecord ingredients = pick(srcRecipes, rng);
+                RecipeRecord nutrition = pick(srcRecipes, rng);
+                int author = rng.nextInt(userCount);
+                recipePublished[r] = srcPublished.length > 0
+                        ? srcPublished[rng.nextInt(srcPublished.length)] + rng.nextLong(DAY_MILLIS) / 1000 * 1000
+                        : 0;
+                RecipeRecord recipe = RecipeRecord.builder()
+                        .RecipeId(r + 1L)
+                        .name(named.getName())
+                        .authorId(author + 1L)
+                        .authorName(userName(author))
+                        .cookTime(nutrition.getCookTime())
+                        .prepTime(nutrition.getPrepTime())
+                        .totalTime(nutrition.getTotalTime())
+                        .datePublished(srcPublished.length > 0 ? new Timestamp(recipePublished[r]) : null)
+                        .description(named.getDescription())
+                        .recipeCategory(named.getRecipeCategory())
+                        .recipeIngredientParts(ingredients.getRecipeIngredientParts())
+                        .aggregatedRating(counts[r] > 0 ? Math.round(ratingSums[r] / counts[r] * 100) / 100f : 0)
+                        .reviewCount(counts[r])
+                        .calories(nutrition.getCalories())
+                        .fatContent(nutrition.getFatContent())
+                        .saturatedFatContent(nutrition.getSaturatedFatContent())
+                        .cholesterolContent(nutrition.getCholesterolContent())
+                        .sodiumContent(nutrition.getSodiumContent())
+                        .carbohydrateContent(nutrition.getCarbohydrateContent())
+                        .fiberContent(nutrition.getFiberContent())
+                        .sugarContent(nutrition.getSugarContent())
+                        .proteinContent(nutrition.getProteinContent())
+                        .recipeServings(nutrition.getRecipeServings())
+                        .recipeYield(nutrition.getRecipeYield())
+                        .build();
+                w.writeNext(new String[]{
+                        Long.toString(recipe.getRecipeId()), recipe.getName(), Long.toString(recipe.getAuthorId()),
+                        recipe.getAuthorName(), recipe.getCookTime(), recipe.getPrepTime(), recipe.getTotalTime(),
+                        timestamp(recipe.getDatePublished()), recipe.getDescription(), recipe.getRecipeCategory(),
+                        strings(recipe.getRecipeIngredientParts()), Float.toString(recipe.getAggregatedRating()),
+                        Integer.toString(recipe.getReviewCount()), Float.toString(recipe.getCalories()),
+                        Float.toString(recipe.getFatContent()), Float.toString(recipe.getSaturatedFatContent()),
+                        Float.toString(recipe.getCholesterolContent()), Float.toString(recipe.getSodiumContent()),
+                        Float.toString(recipe.getCarbohydrateContent()), Float.toString(recipe.getFiberContent()),
+                        Float.toString(recipe.getSugarContent()), Float.toString(recipe.getProteinContent()),
+                        Integer.toString(recipe.getRecipeServings()), recipe.getRecipeYield()});
+                s.accept(recipe);
+            }
+        }
+    }
+
+    private void writeReviews(Path csvFile, Path serFile) throws IOException {
+        try (CSVWriter w = csvWriter(csvFile, '\\');
+             SerFrames.Writer<ReviewRecord> s = SerFrames.writer(fury, serFile)) {
+            w.writeNext(new String[]{"ReviewId", "RecipeId", "AuthorId", "AuthorName", "Rating", "Review",
+                    "DateSubmitted", "DateModified", "Likes"});
+            for (int i = 0; i < reviewCount; i++) {
+                // 前两次抽样与 writeRecipes 中的统计一致
+                SplittableRandom rng = rng(STREAM_REVIEW, i);
+                int recipe = recipeWeights.sample(rng);
+                float rating = srcRatings[rng.nextInt(srcRatings.length)];
+                int author = rng.nextInt(userCount);
+                ReviewRecord text = pick(srcReviews, rng);
+                long submitted = recipePublished[recipe] + srcReviewDelays[rng.nextInt(srcReviewDelays.length)];
+                long modified = submitted + srcEditDelays[rng.nextInt(srcEditDelays.length)];
+                long[] likes = distinct(Math.min(srcLikes[rng.nextInt(srcLikes.length)], userCount),
+                        () -> rng.nextInt(userCount), -1);
+                ReviewRecord review = ReviewRecord.builder()
+                        .reviewId(i + 1L)
+                        .recipeId(recipe + 1L)
+                        .authorId(author + 1L)
+                        .authorName(userName(author))
+                        .rating(rating)
+                        .review(text.getReview())
+                        .dateSubmitted(new Timestamp(submitted))
+                        .dateModified(new Timestamp(modified))
+                        .likes(Arrays.stream(likes).map(v -> v + 1).toArray())
+                        .build();
+                w.writeNext(new String[]{
+                        Long.toString(review.getReviewId()), Long.toString(review.getRecipeId()),
+                        Long.toString(review.getAuthorId()), review.getAuthorName(), Float.toString(review.getRating()),
+                        review.getReview(), timestamp(review.getDateSubmitted()), timestamp(review.getDateModified()),
+                        ids(review.getLikes())});
+                s.accept(review);
+            }
+        }
+    }
+
+    /**
+     * Followees of user {@code u}, as indexes, drawn by popularity. The same every time.
+     */
+    private int[] following(int u) {
+        SplittableRandom rng = rng(STREAM_FOLLOW, u);
+        int k = Math.min(srcFollowing[rng.nextInt(srcFollowing.length)], userCount - 1);
+        return Arrays.stream(distinct(k, () -> userWeights.sample(rng), u)).mapToInt(v -> (int) v).toArray();
+    }
+
+    /**
+     * Up to {@code k} distinct values from {@code draw}, skipping {@code excluded}, sorted.
+     */
+    private static long[] distinct(int k, IntSupplier draw, long excluded) {
+        long[] values = new long[k];
+        int n = 0;
+        // 热门目标会重复抽中，重抽几轮补齐
+        for (int round = 0; round < 8 && n < k; round++) {
+            for (int i = n; i < k; i++) values[i] = draw.getAsInt();
+            Arrays.sort(values, 0, k);
+            n = 0;
+            for (int i = 0; i < k; i++) {
+                if (values[i] != excluded && (n == 0 || values[n - 1] != values[i])) values[n++] = values[i];
+            }
+        }
+        return n == k ? values : Arrays.copyOf(values, n);
+    }
+
+    private String userName(int u) {
+        String name = srcUsers.get(u % srcUsers.size()).getAuthorName();
+        int copy = u / srcUsers.size();
+        return copy == 0 ? name : name + " " + copy;
+    }
+
+    private SplittableRandom rng(long stream, long index) {
+        return new SplittableRandom(mix(mix(seed ^ stream * 0x9E3779B97F4A7C15L) + index));
+    }
+
+    /**
+     * Weights that reproduce the source counts: each one is a resampled source count, and counts in the
+     * power-law tail are redrawn from the fitted tail, so the largest ones keep growing with the scale.
+     */
+    private AliasTable weights(int n, int[] srcCounts, PowerLawTail tail, long stream) {
+        SplittableRandom rng = rng(stream, 0);
+        double[] w = new double[n];
+        for (int i = 0; i < n; i++) {
+            int count = srcCounts[rng.nextInt(srcCounts.length)];
+            w[i] = count >= tail.xmin ? tail.sample(rng) : count;
+        }
+        return new AliasTable(w);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static <T> T pick(List<T> list, SplittableRandom rng) {
+        return list.get(rng.nextInt(list.size()));
+    }
+
+    private static int length(long[] a) {
+        return a == null ? 0 : a.length;
+    }
+
+    private static String ids(long[] ids) {
+        StringJoiner joiner = new StringJoiner(", ", "(", ")");
+        for (long id : ids) joiner.add(Long.toString(id));
+        return joiner.toString();
+    }
+
+    private static String strings(String[] items) {
+        if (items == null) return "";
+        StringJoiner joiner = new StringJoiner(", ", "c(", ")");
+        for (String item : items) joiner.add('"' + item.replace("\\", "\\\\").replace("\"", "\\\"") + '"');
+        return joiner.toString();
+    }
+
+    private static String timestamp(Timestamp t) {
+        return t == null ? "" : TIMESTAMP.format(t.toInstant());
+    }
+
+    /**
+     * users.csv and reviews.csv are read with a backslash escape, recipes.csv as plain RFC 4180.
+     */
+    private static CSVWriter csvWriter(Path file, char escape) throws IOException {
+        return new CSVWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8),
+                CSVWriter.DEFAULT_SEPARATOR, CSVWriter.DEFAULT_QUOTE_CHARACTER, escape, CSVWriter.DEFAULT_LINE_END);
+    }
+
+    /**
+     * Discrete power law fitted by maximum likelihood to the values at or above the 90th percentile.
+     */
+    static class PowerLawTail {
+
+        final int xmin;
+
+        final double alpha;
+
+        PowerLawTail(int xmin, double alpha) {
+            this.xmin = xmin;
+            this.alpha = alpha;
+        }
+
+        static PowerLawTail fit(int[] values) {
+            int[] sorted = values.clone();
+            Arrays.sort(sorted);
+            int xmin = Math.max(1, sorted[(int) (sorted.length * 0.9)]);
+            double logSum = 0;
+            int n = 0;
+            for (int v : sorted) {
+                if (v >= xmin) {
+                    logSum += Math.log(v / (xmin - 0.5));
+                    n++;
+                }
+            }
+            // 数据太少无法拟合时退回常见的 2.5
+            double alpha = n > 0 && logSum > 0 ? 1 + n / logSum : 2.5;
+            return new PowerLawTail(xmin, Math.max(1.5, Math.min(3.5, alpha)));
+        }
+
+        double sample(SplittableRandom rng) {
+            return (xmin - 0.5) * Math.pow(1 - rng.nextDouble(), -1 / (alpha - 1)) + 0.5;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("x>=%d alpha=%.2f", xmin, alpha);
+        }
+    }
+
+    /**
+     * Walker's alias method: O(1) draws from a fixed discrete distribution.
+     */
+    private static class AliasTable {
+
+        private final double[] prob;
+
+        private final int[] alias;
+
+        AliasTable(double[] weights) {
+            int n = weights.length;
+            prob = new double[n];
+            alias = new int[n];
+            double sum = 0;
+            for (double w : weights) sum += w;
+            if (sum == 0) {
+                Arrays.fill(weights, 1);
+                sum = n;
+            }
+            // 两个栈共用一个数组：small 从头部增长，large 从尾部增长
+            int[] stack = new int[n];
+            int smallTop = 0, largeTop = n;
+            for (int i = 0; i < n; i++) {
+                prob[i] = weights[i] * n / sum;
+                if (prob[i] < 1) stack[smallTop++] = i;
+                else stack[--largeTop] = i;
+            }
+            while (smallTop > 0 && largeTop < n) {
+                int s = stack[--smallTop], l = stack[largeTop++];
+                alias[s] = l;
+                prob[l] += prob[s] - 1;
+                if (prob[l] < 1) stack[smallTop++] = l;
+                else stack[--largeTop] = l;
+            }
+            while (smallTop > 0) prob[stack[--smallTop]] = 1;
+            while (largeTop < n) prob[stack[largeTop++]] = 1;
+        }
+
+        int sample(SplittableRandom rng) {
+            int i = rng.nextInt(prob.length);
+            return rng.nextDouble() < prob[i] ? i : alias[i];
+        }
+    }
+}
@@ -5,7 +5,10 @@ import com.opencsv.RFC4180ParserBuilder;
 import io.fury.ThreadSafeFury;
 import io.sustc.benchmark.BenchmarkConfig;
 import io.sustc.benchmark.BenchmarkConstants;
+import io.sustc.benchmark.BenchmarkResult;
 import io.sustc.benchmark.BenchmarkService;
+import io.sustc.benchmark.FuryProfile;
+import io.sustc.benchmark.SerFrames;
 import io.sustc.dto.*;
 import io.sustc.service.DatabaseService;
 import io.sustc.service.RecipeService;
@@ -17,23 +20,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
 import com.opencsv.CSVReader;
-import com.opencsv.exceptions.CsvException;
 
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 
-import java.sql.Timestamp;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.time.Instant;
 import java.util.*;
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 
 //在Spring Shell应用中Java类需要使用注解@ShellComponent来修饰，
@@ -43,6 +41,13 @@ import java.util.List;
 @ConditionalOnBean(DatabaseService.class)
 public class DatabaseCommand {
 
+    // 每个时间列各自识别一次格式
+    private static final TimestampParser DATE_PUBLISHED = new TimestampParser();
+
+    private static final TimestampParser DATE_SUBMITTED = new TimestampParser();
+
+    private static final TimestampParser DATE_MODIFIED = new TimestampParser();
+
     @Autowired
     private DatabaseService databaseService;
 
@@ -61,6 +66,10 @@ public class DatabaseCommand {
     @Autowired
     private ThreadSafeFury fury;
 
+    // 导入文件使用 benchmark.import-fury-profile 指定的配置
+    @Autowired
+    private ThreadSafeFury importFury;
+
     @Autowired
     private BenchmarkConfig config;
 
@@ -82,6 +91,115 @@ public class DatabaseCommand {
         System.out.println("importData time: " + duration + " ms");
     }
 
+    @SneakyThrows
+    @ShellMethod(key = "db import-csv", value = "Drop all the tables. Then import data straight from csv, without .ser files")
+    public void importCsv(@ShellOption(defaultValue = "data/csv") String dir,
+                          @ShellOption(defaultValue = ShellOption.NULL) ImportMode mode) {
+        long startTime = System.currentTimeMillis();
+
+        databaseService.drop();
+        // 三个文件各由一个线程解析，经有界队列交给数据库写入
+        try (CsvPipeline pipeline = new CsvPipeline()) {
+            Iterator<UserRecord> users = pipeline.read(readUsers(Paths.get(dir, "users.csv").toString()));
+            Iterator<RecipeRecord> recipes = pipeline.read(readRecipes(Paths.get(dir, "recipes.csv").toString()));
+            Iterator<ReviewRecord> reviews = pipeline.read(readReviews(Paths.get(dir, "reviews.csv").toString()));
+            databaseService.importStream(reviews, users, recipes, ImportOptions.builder().mode(mode).build());
+        }
+
+        long duration = System.currentTimeMillis() - startTime;
+        System.out.println("importCsv time: " + duration + " ms");
+    }
+
+    @ShellMethod(key = "db import-delta", value = "Apply changed records from users/recipes/reviews .ser files without dropping the tables")
+    public void importDelta(@ShellOption(defaultValue = "data/delta") String dir) {
+        long startTime = System.currentTimeMillis();
+
+        List<UserRecord> users = deserializeIfExists(dir, "users.ser");
+        List<RecipeRecord> recipes = deserializeIfExists(dir, "recipes.ser");
+        List<ReviewRecord> reviews = deserializeIfExists(dir, "reviews.ser");
+        databaseService.importDelta(reviews, users, recipes);
+
+        long duration = System.currentTimeMillis() - startTime;
+        System.out.println("importDelta time: " + duration + " ms");
+    }
+
+    // 缺少的文件表示该表没有变化
+    @SneakyThrows
+    @SuppressWarnings("unchecked")
+    private <T> List<T> deserializeIfExists(String dir, String name) {
+        var file = Paths.get(dir, name);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        if (SerFrames.isFramed(file)) {
+            return SerFrames.readList(importFury, file);
+        }
+        return (List<T>) importFury.deserialize(Files.readAllBytes(file));
+    }
+
+    @SneakyThrows
+    @ShellMethod(key = "db fury-bench", value = "Measure deserialize throughput of the import files under each Fury profile")
+    public void furyBench(@ShellOption(defaultValue = "5") int rounds) {
+        Path dir = Paths.get(config.getDataPath(), BenchmarkConstants.IMPORT_DATA);
+        List<List<?>> files = new ArrayList<>();
+        for (String name : List.of(BenchmarkConstants.USER_RECORDS, BenchmarkConstants.RECIPE_RECORDS, BenchmarkConstants.REVIEW_RECORDS)) {
+            files.add(deserializeIfExists(dir.toString(), name));
+        }
+        files.removeIf(Objects::isNull);
+        long records = files.stream().mapToLong(List::size).sum();
+
+        System.out.printf("%-18s %12s %14s %10s %10s%n", "profile", "bytes", "records/s", "MB/s", "roundtrip");
+        for (FuryProfile profile : FuryProfile.values()) {
+            ThreadSafeFury candidate = profile.build();
+            // 与分块文件一致，每块单独序列化
+            List<List<?>> originals = new ArrayList<>();
+            List<byte[]> chunks = new ArrayList<>();
+            for (List<?> file : files) {
+                for (int from = 0; from < file.size(); from += SerFrames.DEFAULT_CHUNK_RECORDS) {
+                    List<?> chunk = new ArrayList<>(file.subList(from, Math.min(file.size(), from + SerFrames.DEFAULT_CHUNK_RECORDS)));
+                    originals.add(chunk);
+                    chunks.add(candidate.serialize(chunk));
+                }
+            }
+            long bytes = chunks.stream().mapToLong(c -> c.length).sum();
+
+            // 预热的同时检查读回的记录与原记录一致
+            boolean roundTrip = true;
+            for (int i = 0; i < chunks.size(); i++) {
+                roundTrip &= originals.get(i).equals(candidate.deserialize(chunks.get(i)));
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                chunks.forEach(candidate::deserialize);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%-18s %12d %14.0f %10.1f %10s%n", profile.name().toLowerCase(), bytes,
+                    records * rounds / seconds, bytes * rounds / seconds / (1 << 20), roundTrip ? "ok" : "MISMATCH");
+        }
+    }
+
+    @SneakyThrows
+    @ShellMethod(key = "db generate", value = "Generate a scaled-up dataset with the distributions of the csv data")
+    public void generate(@ShellOption(defaultValue = "10") int scale,
+                         @ShellOption(defaultValue = "42") long seed,
+                         @ShellOption(defaultValue = "data/csv") String source,
+                         @ShellOption(defaultValue = ShellOption.NULL, help = "Output directory, data/scale-<scale>x by default") String out) {
+        long startTime = System.currentTimeMillis();
+
+        Path target = out != null ? Paths.get(out) : Paths.get("data", "scale-" + scale + "x");
+        new DataGenerator(Paths.get(source), importFury, scale, seed).generate(target);
+
+        long duration = System.currentTimeMillis() - startTime;
+        System.out.println("generate time: " + duration + " ms, output: " + target.toAbsolutePath());
+    }
+
+    @ShellMethod(key = "db search-check", value = "Replay the recipe_search cases against the current schema and indexes")
+    public void searchCheck() {
+        // 与 benchmark 相同的用例作为判定标准，换索引后结果必须完全一致
+        BenchmarkResult result = benchmarkService.searchRecipesTest();
+        System.out.println("searchRecipes passed: " + result.getPassCnt() + ", time: " + result.getElapsedTime() + " ms");
+    }
+
     @ShellMethod(key = "db drop", value = "Drop all the tables")
     public void drop() {
         databaseService.drop();
@@ -93,124 +211,46 @@ public class DatabaseCommand {
     }
 
     @ShellMethod(key = "db csv2ser", value = "Generate .ser files from .csv files")
-    public void csv2ser() {
+    public void csv2ser(@ShellOption(defaultValue = "false", help = "Write one Fury blob per file instead of chunked frames") boolean legacy) {
         try {
             // 获取项目根目录
             String projectRoot = System.getProperty("user.dir");
             System.out.println("projectRoot:" + projectRoot);
 
-            List<UserRecord> users = loadUsers(projectRoot + "/data/csv/users.csv");
-            List<RecipeRecord> recipes = loadRecipes(projectRoot + "/data/csv/recipes.csv");
-            List<ReviewRecord> reviews = loadReviews(projectRoot + "/data/csv/reviews.csv");
-
-            // 序列化数据
-            serializeData(users, projectRoot + "/data/import/users.ser");
-            serializeData(recipes, projectRoot + "/data/import/recipes.ser");
-            serializeData(reviews, projectRoot + "/data/import/reviews.ser");
+            // 逐行解析并写入，不再一次性读入整个 CSV
+            long users = convert(readUsers(projectRoot + "/data/csv/users.csv"), projectRoot + "/data/import/users.ser", legacy);
+            long recipes = convert(readRecipes(projectRoot + "/data/csv/recipes.csv"), projectRoot + "/data/import/recipes.ser", legacy);
+            long reviews = convert(readReviews(projectRoot + "/data/csv/reviews.csv"), projectRoot + "/data/import/reviews.ser", legacy);
 
             System.out.println("Data loading and serialization have been completed!");
-            System.out.println("user count: " + users.size());
-            System.out.println("recipe count: " + recipes.size());
-            System.out.println("review count: " + reviews.size());
+            System.out.println("user count: " + users);
+            System.out.println("recipe count: " + recipes);
+            System.out.println("review count: " + reviews);
 
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    private static String[] parseCsvList(String listStr) {
-        if (listStr == null || listStr.trim().isEmpty() || "null".equalsIgnoreCase(listStr.trim())) {
-            return new String[0];
+    private <T> long convert(CsvRecordReader<T> reader, String outputFilePath, boolean legacy) throws IOException {
+        if (legacy) {
+            List<T> records = readAll(reader);
+            serializeData(records, outputFilePath);
+            return records.size();
         }
-
-        String trimmed = listStr.trim();
-
-        // 检查是否是 c("item1", "item2", ...) 格式
-        if (trimmed.startsWith("c(") && trimmed.endsWith(")")) {
-            // 提取括号内的内容
-            String content = trimmed.substring(2, trimmed.length() - 1).trim();
-
-            // 使用更简单的正则表达式匹配所有引号内的内容
-            Pattern pattern = Pattern.compile("\"([^\"]*)\"");
-            Matcher matcher = pattern.matcher(content);
-
-            List<String> items = new ArrayList<>();
-            while (matcher.find()) {
-                items.add(matcher.group(1));
-            }
-
-            // 如果找到了引号内的项目，返回它们
-            if (!items.isEmpty()) {
-                return items.toArray(new String[0]);
-            }
-
-            // 如果没有找到引号内容，尝试按逗号分割括号内的内容
-            return Arrays.stream(content.split("\\s*,\\s*"))
-                    .map(String::trim)
-                    .filter(s -> !s.isEmpty())
-                    .toArray(String[]::new);
+        try (reader; SerFrames.Writer<T> writer = SerFrames.writer(importFury, Paths.get(outputFilePath))) {
+            reader.forEachRemaining(writer);
+            return writer.count();
         }
+    }
 
-        // 如果不是 c(...) 格式，尝试直接按逗号分割
-        return Arrays.stream(trimmed.split("\\s*,\\s*"))
-                .map(String::trim)
-                .filter(s -> !s.isEmpty())
-                .toArray(String[]::new);
+    private static String[] parseCsvList(String listStr) {
+        return CsvListScanner.get().scanStrings(listStr);
     }
 
     // 辅助方法：解析("123", "456")格式的字符串为long数组
     private static long[] parseCsvLongList(String listStr) {
-        // 处理空值或空字符串
-        if (listStr == null || listStr.trim().isEmpty() || "null".equalsIgnoreCase(listStr.trim())) {
-            return new long[0];
-        }
-
-        String trimmedStr = listStr.trim();
-        // 移除开头的括号和结尾的引号“
-        if(trimmedStr.length()>=2) {
-            trimmedStr = trimmedStr.substring(1, trimmedStr.length() - 1);
-        }
-
-        // 如果字符串已经是空字符串，返回空数组
-        if (trimmedStr.isEmpty()) {
-            return new long[0];
-        }
-
-        // 使用逗号分割字符串，并去除每个部分的前后空格
-        String[] stringArray = trimmedStr.split("\\s*,\\s*");
-        long[] longArray = new long[stringArray.length];
-
-        for (int i = 0; i < stringArray.length; i++) {
-            try {
-                longArray[i] = Long.parseLong(stringArray[i].trim());
-            } catch (NumberFormatException e) {
-                longArray[i] = 0L; // 解析失败设为0
-            }
-        }
-
-        return longArray;
-    }
-
-    // 辅助方法：解析时间戳
-    private static Timestamp parseTimestamp(String timestampStr) {
-        if (timestampStr == null || timestampStr.trim().isEmpty() || "null".equalsIgnoreCase(timestampStr.trim())) {
-            return null;
-        }
-
-        // 尝试多种日期格式
-        String[] dateFormats = {"yyyy-MM-dd HH:mm:ss", "yyyy-MM-dd'T'HH:mm:ss", "yyyy-MM-dd", "MM/dd/yyyy HH:mm:ss", "MM/dd/yyyy"};
-
-        for (String format : dateFormats) {
-            try {
-                SimpleDateFormat sdf = new SimpleDateFormat(format);
-                Date date = sdf.parse(timestampStr.trim());
-                return new Timestamp(date.getTime());
-            } catch (ParseException e) {
-                // 尝试下一种格式
-            }
-        }
-
-        return null; // 所有格式都解析失败
+        return CsvListScanner.get().scanLongs(listStr);
     }
 
     // 辅助方法：解析浮点数，处理空值和异常
@@ -253,113 +293,103 @@ public class DatabaseCommand {
     }
 
     // 加载用户数据
-    public static List<UserRecord> loadUsers(String filePath) throws IOException, CsvException {
-        List<UserRecord> users = new ArrayList<>();
-
-        try (CSVReader reader = new CSVReader(new FileReader(filePath))) {
-            List<String[]> records = reader.readAll();
-
-            // 跳过标题行
-            for (int i = 1; i < records.size(); i++) {
-                String[] fields = records.get(i);
-
-                if (fields.length >= 9) {
-                    UserRecord user = UserRecord.builder().authorId(parseLong(fields[0])).authorName(fields[1] != null ? fields[1].trim() : "").gender(fields[2] != null ? fields[2].trim() : "").age(parseInt(fields[3])).
-                            followers(parseInt(fields[4])).
-                            following(parseInt(fields[5])).
-                            followerUsers(parseCsvLongList(fields[6])).
-                            followingUsers(parseCsvLongList(fields[7])).
-                            password(fields[8] != null ? fields[8].trim() : "").build();
+    public static List<UserRecord> loadUsers(String filePath) throws IOException {
+        return readAll(readUsers(filePath));
+    }
 
-                    users.add(user);
-                }
-            }
-        }
+    //加载食谱数据
+    public static List<RecipeRecord> loadRecipes(String filePath) throws IOException {
+        return readAll(readRecipes(filePath));
+    }
 
-        return users;
+    // 加载评论数据
+    public static List<ReviewRecord> loadReviews(String filePath) throws IOException {
+        return readAll(readReviews(filePath));
     }
 
-    //加载食谱数据
-    public static List<RecipeRecord> loadRecipes(String filePath) throws IOException, CsvException {
-        List<RecipeRecord> recipes = new ArrayList<>();
+    /**
+     * Streams the users of a CSV file, one row parsed at a time. The caller must close the reader.
+     */
+    public static CsvRecordReader<UserRecord> readUsers(String filePath) throws IOException {
+        return new CsvRecordReader<>(new CSVReader(new FileReader(filePath)), 9, DatabaseCommand::toUser);
+    }
 
+    /**
+     * Streams the recipes of a CSV file, one row parsed at a time. The caller must close the reader.
+     */
+    public static CsvRecordReader<RecipeRecord> readRecipes(String filePath) throws IOException {
         // 使用 RFC4180Parser 创建 CSVReader
-        try (CSVReader reader = new CSVReaderBuilder(new FileReader(filePath))
+        CSVReader reader = new CSVReaderBuilder(new FileReader(filePath))
                 .withCSVParser(new RFC4180ParserBuilder().build())
-                .build()) {
-
-            List<String[]> records = reader.readAll();
-
-            // 跳过标题行
-            for (int i = 1; i < records.size(); i++) {
-                String[] fields = records.get(i);
-
-                if (fields.length >= 24) {
-                    RecipeRecord recipe = RecipeRecord.builder()
-                            .RecipeId(parseLong(fields[0]))
-                            .name(fields[1] != null ? fields[1].trim() : "")
-                            .authorId(parseLong(fields[2]))
-                            .authorName(fields[3] != null ? fields[3].trim() : "")
-                            .cookTime(fields[4] != null ? fields[4].trim() : "")
-                            .prepTime(fields[5] != null ? fields[5].trim() : "")
-                            .totalTime(fields[6] != null ? fields[6].trim() : "")
-                            .datePublished(parseTimestamp(fields[7]))
-                            .description(fields[8] != null ? fields[8].trim() : "")
-                            .recipeCategory(fields[9] != null ? fields[9].trim() : "")
-                            .recipeIngredientParts(parseCsvList(fields[10]))
-                            .aggregatedRating(parseFloat(fields[11]))
-                            .reviewCount((int)parseFloat(fields[12]))
-                            .calories(parseFloat(fields[13]))
-                            .fatContent(parseFloat(fields[14]))
-                            .saturatedFatContent(parseFloat(fields[15]))
-                            .cholesterolContent(parseFloat(fields[16]))
-                            .sodiumContent(parseFloat(fields[17]))
-                            .carbohydrateContent(parseFloat(fields[18]))
-                            .fiberContent(parseFloat(fields[19]))
-                            .sugarContent(parseFloat(fields[20]))
-                            .proteinContent(parseFloat(fields[21]))
-                            .recipeServings((int)parseFloat(fields[22]))
-                            .recipeYield(fields[23] != null ? fields[23].trim() : "")
-                            .build();
-
-                    recipes.add(recipe);
-                }
-            }
-        }
-
-        return recipes;
+                .build();
+        return new CsvRecordReader<>(reader, 24, DatabaseCommand::toRecipe);
     }
 
-    // 加载评论数据
-    public static List<ReviewRecord> loadReviews(String filePath) throws IOException, CsvException {
-        List<ReviewRecord> reviews = new ArrayList<>();
-
-        try (CSVReader reader = new CSVReader(new FileReader(filePath))) {
-            List<String[]> records = reader.readAll();
+    /**
+     * Streams the reviews of a CSV file, one row parsed at a time. The caller must close the reader.
+     */
+    public static CsvRecordReader<ReviewRecord> readReviews(String filePath) throws IOException {
+        return new CsvRecordReader<>(new CSVReader(new FileReader(filePath)), 9, DatabaseCommand::toReview);
+    }
 
-            // 跳过标题行
-            for (int i = 1; i < records.size(); i++) {
-                String[] fields = records.get(i);
+    private static <T> List<T> readAll(CsvRecordReader<T> reader) throws IOException {
+        List<T> records = new ArrayList<>();
+        try (reader) {
+            reader.forEachRemaining(records::add);
+        }
+        return records;
+    }
 
-                if (fields.length >= 9) {
-                    ReviewRecord review = ReviewRecord.builder().reviewId(parseLong(fields[0])).
-                            recipeId(parseLong(fields[1])).authorId(parseLong(fields[2])).
-                            authorName(fields[3] != null ? fields[3].trim() : "").
-                            rating(parseFloat(fields[4])).review(fields[5] != null ? fields[5].trim() : "").
-                            dateSubmitted(parseTimestamp(fields[6])).dateModified(parseTimestamp(fields[7])).
-                            likes(parseCsvLongList(fields[8])).build();
+    private static UserRecord toUser(String[] fields) {
+        return UserRecord.builder().authorId(parseLong(fields[0])).authorName(fields[1] != null ? fields[1].trim() : "").gender(fields[2] != null ? fields[2].trim() : "").age(parseInt(fields[3])).
+                followers(parseInt(fields[4])).
+                following(parseInt(fields[5])).
+                followerUsers(parseCsvLongList(fields[6])).
+                followingUsers(parseCsvLongList(fields[7])).
+                password(fields[8] != null ? fields[8].trim() : "").build();
+    }
 
-                    reviews.add(review);
-                }
-            }
-        }
+    private static RecipeRecord toRecipe(String[] fields) {
+        return RecipeRecord.builder()
+                .RecipeId(parseLong(fields[0]))
+                .name(fields[1] != null ? fields[1].trim() : "")
+                .authorId(parseLong(fields[2]))
+                .authorName(fields[3] != null ? fields[3].trim() : "")
+                .cookTime(fields[4] != null ? fields[4].trim() : "")
+                .prepTime(fields[5] != null ? fields[5].trim() : "")
+                .totalTime(fields[6] != null ? fields[6].trim() : "")
+                .datePublished(DATE_PUBLISHED.parse(fields[7]))
+                .description(fields[8] != null ? fields[8].trim() : "")
+                .recipeCategory(fields[9] != null ? fields[9].trim() : "")
+                .recipeIngredientParts(parseCsvList(fields[10]))
+                .aggregatedRating(parseFloat(fields[11]))
+                .reviewCount((int)parseFloat(fields[12]))
+                .calories(parseFloat(fields[13]))
+                .fatContent(parseFloat(fields[14]))
+                .saturatedFatContent(parseFloat(fields[15]))
+                .cholesterolContent(parseFloat(fields[16]))
+                .sodiumContent(parseFloat(fields[17]))
+                .carbohydrateContent(parseFloat(fields[18]))
+                .fiberContent(parseFloat(fields[19]))
+                .sugarContent(parseFloat(fields[20]))
+                .proteinContent(parseFloat(fields[21]))
+                .recipeServings((int)parseFloat(fields[22]))
+                .recipeYield(fields[23] != null ? fields[23].trim() : "")
+                .build();
+    }
 
-        return reviews;
+    private static ReviewRecord toReview(String[] fields) {
+        return ReviewRecord.builder().reviewId(parseLong(fields[0])).
+                recipeId(parseLong(fields[1])).authorId(parseLong(fields[2])).
+                authorName(fields[3] != null ? fields[3].trim() : "").
+                rating(parseFloat(fields[4])).review(fields[5] != null ? fields[5].trim() : "").
+                dateSubmitted(DATE_SUBMITTED.parse(fields[6])).dateModified(DATE_MODIFIED.parse(fields[7])).
+                likes(parseCsvLongList(fields[8])).build();
     }
 
     @SneakyThrows
     public void serializeData(List<?> data, String outputFilePath) throws IOException {
-        byte[] serializedData = fury.serialize(data);
+        byte[] serializedData = importFury.serialize(data);
         Files.write(Paths.get(outputFilePath), serializedData);
     }
 
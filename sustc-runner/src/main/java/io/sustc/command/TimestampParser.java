@@ -0,0 +1,106 @@
+package io.sustc.command;
+
+import java.sql.Timestamp;
+import java.text.ParsePosition;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.List;
+
+/**
+ * Parses the timestamps of one CSV column.
+ * <p>
+ * The format is detected from the first non-null value and remembered, so every later value is parsed
+ * with one formatter; a value that does not fit it triggers detection again. Candidates are tried with
+ * {@link DateTimeFormatter#parseUnresolved}, which reports a mismatch through its {@link ParsePosition}
+ * instead of throwing. A trailing offset such as {@code Z} or {@code +08:00} is honoured;
+ * values without one are read in the default time zone, as before.
+ * <p>
+ * Instances are thread-safe.
+ */
+public final class TimestampParser {
+
+    private static final List<DateTimeFormatter> FORMATS = List.of(
+            dateTime("uuuu-MM-dd HH:mm:ss"),
+            dateTime("uuuu-MM-dd'T'HH:mm:ss"),
+            DateTimeFormatter.ofPattern("uuuu-MM-dd"),
+            dateTime("M/d/uuuu H:mm:ss"),
+            DateTimeFormatter.ofPattern("M/d/uuuu")
+    );
+
+    private volatile DateTimeFormatter detected;
+
+    public Timestamp parse(String value) {
+        if (value == null) return null;
+        String text = value.trim();
+        if (text.isEmpty() || "null".equalsIgnoreCase(text)) return null;
+
+        DateTimeFormatter format = detected;
+        if (format != null) {
+            TemporalAccessor parsed = parseFully(format, text);
+            if (parsed != null) return toTimestamp(parsed);
+        }
+        for (DateTimeFormatter candidate : FORMATS) {
+            if (candidate == format) continue;
+            TemporalAccessor parsed = parseFully(candidate, text);
+            if (parsed != null) {
+                detected = candidate;
+                return toTimestamp(parsed);
+            }
+        }
+        return null; // 所有格式都解析失败
+    }
+
+    /**
+     * A date-time pattern followed by optional fractional seconds and an optional offset.
+     */
+    private static DateTimeFormatter dateTime(String pattern) {
+        return new DateTimeFormatterBuilder()
+                .appendPattern(pattern)
+                .optionalStart()
+                .appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true)
+                .optionalEnd()
+                .optionalStart()
+                .appendOffset("+HH:MM", "Z")
+                .optionalEnd()
+                .toFormatter();
+    }
+
+    private static TemporalAccessor parseFully(DateTimeFormatter format, String text) {
+        ParsePosition pos = new ParsePosition(0);
+        TemporalAccessor parsed = format.parseUnresolved(text, pos);
+        if (parsed == null || pos.getErrorIndex() >= 0 || pos.getIndex() != text.length()) {
+            return null;
+        }
+        return parsed;
+    }
+
+    private static Timestamp toTimestamp(TemporalAccessor t) {
+        try {
+            LocalDateTime dateTime = LocalDateTime.of(
+                    (int) t.getLong(ChronoField.YEAR),
+                    (int) t.getLong(ChronoField.MONTH_OF_YEAR),
+                    (int) t.getLong(ChronoField.DAY_OF_MONTH),
+                    field(t, ChronoField.HOUR_OF_DAY),
+                    field(t, ChronoField.MINUTE_OF_HOUR),
+                    field(t, ChronoField.SECOND_OF_MINUTE),
+                    field(t, ChronoField.NANO_OF_SECOND));
+            if (t.isSupported(ChronoField.OFFSET_SECONDS)) {
+                ZoneOffset offset = ZoneOffset.ofTotalSeconds((int) t.getLong(ChronoField.OFFSET_SECONDS));
+                return Timestamp.from(dateTime.toInstant(offset));
+            }
+            return Timestamp.valueOf(dateTime);
+        } catch (DateTimeException e) {
+            // 格式正确但日期不存在，例如 2月30日
+            return null;
+        }
+    }
+
+    private static int field(TemporalAccessor t, ChronoField field) {
+        return t.isSupported(field) ? (int) t.getLong(field) : 0;
+    }
+}